@@ -0,0 +1,58 @@
+/*
+ * Copyright © 2026 PRISMA European Capacity Platform GmbH 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.prismacapacity.spring.cqs;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import jakarta.validation.metadata.BeanDescriptor;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.NonNull;
+
+/**
+ * Validates commands and queries using bean validation, but skips types that do not declare any
+ * constraints at all. Whether a type is constrained is looked up once per type.
+ */
+public final class BeanValidation {
+  private final Map<Class<?>, Boolean> constrained = new ConcurrentHashMap<>();
+
+  public <T> Set<ConstraintViolation<T>> validate(@NonNull Validator validator, @NonNull T object) {
+    if (!isConstrained(validator, object.getClass())) {
+      return Collections.emptySet();
+    }
+    return validator.validate(object);
+  }
+
+  boolean isConstrained(Validator validator, Class<?> type) {
+    Boolean result = constrained.get(type);
+    if (result == null) {
+      result = constrained.computeIfAbsent(type, t -> lookup(validator, t));
+    }
+    return result;
+  }
+
+  private static boolean lookup(Validator validator, Class<?> type) {
+    try {
+      BeanDescriptor descriptor = validator.getConstraintsForClass(type);
+      // validate anyway if the validator cannot tell
+      return descriptor == null || descriptor.isBeanConstrained();
+    } catch (RuntimeException e) {
+      return true;
+    }
+  }
+}
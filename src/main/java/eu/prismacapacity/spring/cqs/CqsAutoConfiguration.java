@@ -1,5 +1,5 @@
 /*
- * Copyright © 2020-2023 PRISMA European Capacity Platform GmbH 
+ * Copyright © 2020-2026 PRISMA European Capacity Platform GmbH 
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -15,30 +15,98 @@
  */
 package eu.prismacapacity.spring.cqs;
 
+import eu.prismacapacity.spring.cqs.bus.CqsBus;
 import eu.prismacapacity.spring.cqs.cmd.CommandHandlerOrchestrationAspect;
+import eu.prismacapacity.spring.cqs.cmd.IdempotencyStore;
+import eu.prismacapacity.spring.cqs.cmd.InMemoryIdempotencyStore;
 import eu.prismacapacity.spring.cqs.metrics.CommandMetrics;
 import eu.prismacapacity.spring.cqs.metrics.CqsMetrics;
 import eu.prismacapacity.spring.cqs.metrics.QueryMetrics;
 import eu.prismacapacity.spring.cqs.query.QueryHandlerOrchestrationAspect;
+import eu.prismacapacity.spring.cqs.query.ReactiveQueryHandlerOrchestrationAspect;
+import eu.prismacapacity.spring.cqs.retry.RetryBudget;
 import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
 import jakarta.validation.Validator;
+import java.time.Duration;
+import org.springframework.beans.factory.ListableBeanFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
 
 @AutoConfiguration
 public class CqsAutoConfiguration {
   @Bean
   public CommandHandlerOrchestrationAspect commandHandlerOrchestrationAspect(
-      Validator v, CommandMetrics metrics) {
-    return new CommandHandlerOrchestrationAspect(v, metrics);
+      Validator v,
+      CommandMetrics metrics,
+      IdempotencyStore idempotencyStore,
+      ObjectProvider<ObservationRegistry> observationRegistry,
+      ObjectProvider<RetryBudget> globalRetryBudget) {
+    return new CommandHandlerOrchestrationAspect(
+        v,
+        metrics,
+        idempotencyStore,
+        observationRegistry.getIfAvailable(),
+        globalRetryBudget.getIfAvailable());
+  }
+
+  @Bean
+  @ConditionalOnProperty("cqs.retry.budget.ratio")
+  public RetryBudget globalRetryBudget(
+      @Value("${cqs.retry.budget.ratio}") double ratio,
+      @Value("${cqs.retry.budget.capacity:100}") int capacity,
+      CommandMetrics metrics) {
+    RetryBudget budget = new RetryBudget(ratio, capacity);
+    metrics.registerRetryBudget("global", budget);
+    return budget;
+  }
+
+  @Bean
+  @ConditionalOnMissingBean
+  public IdempotencyStore idempotencyStore(
+      @Value("${cqs.command.idempotency.max-size:10000}") int maxSize,
+      @Value("${cqs.command.idempotency.ttl:PT1H}") Duration ttl) {
+    return new InMemoryIdempotencyStore(maxSize, ttl);
   }
 
   @Bean
   public QueryHandlerOrchestrationAspect queryHandlerOrchestrationAspect(
-      Validator v, QueryMetrics metrics) {
-    return new QueryHandlerOrchestrationAspect(v, metrics);
+      Validator v,
+      QueryMetrics metrics,
+      ObjectProvider<ObservationRegistry> observationRegistry,
+      ObjectProvider<RetryBudget> globalRetryBudget) {
+    return new QueryHandlerOrchestrationAspect(
+        v, metrics, observationRegistry.getIfAvailable(), globalRetryBudget.getIfAvailable());
+  }
+
+  @Configuration(proxyBeanMethods = false)
+  @ConditionalOnClass(name = "reactor.core.publisher.Mono")
+  static class ReactiveConfiguration {
+    @Bean
+    public ReactiveQueryHandlerOrchestrationAspect reactiveQueryHandlerOrchestrationAspect(
+        Validator v,
+        QueryMetrics metrics,
+        ObjectProvider<ObservationRegistry> observationRegistry) {
+      return new ReactiveQueryHandlerOrchestrationAspect(
+          v, metrics, observationRegistry.getIfAvailable());
+    }
+  }
+
+  @Bean
+  @ConditionalOnMissingBean
+  public CqsBus cqsBus(
+      ListableBeanFactory beanFactory,
+      CommandHandlerOrchestrationAspect commandHandlerOrchestrationAspect,
+      QueryHandlerOrchestrationAspect queryHandlerOrchestrationAspect) {
+    return new CqsBus(
+        beanFactory, commandHandlerOrchestrationAspect, queryHandlerOrchestrationAspect);
   }
 
   @Bean
@@ -48,11 +116,15 @@ public class CqsAutoConfiguration {
       @Value("${cqs.command.timer-name:commandHandler.timed}") String commandHandlerTimerName,
       @Value("${cqs.query.timer-name:queryHandler.timed}") String queryHandlerTimerName,
       @Value("${cqs.query.timeout-name:queryHandler.timeOutDuringExecution}")
-          String timeoutDuringQueryCounterName) {
+          String timeoutDuringQueryCounterName,
+      @Value("${cqs.metrics.phase-timing:false}") boolean phaseTimingEnabled,
+      Environment environment) {
     return new CqsMetrics(
         meterRegistry,
         queryHandlerTimerName,
         timeoutDuringQueryCounterName,
-        commandHandlerTimerName);
+        commandHandlerTimerName,
+        phaseTimingEnabled,
+        environment);
   }
 }
@@ -0,0 +1,84 @@
+/*
+ * Copyright © 2026 PRISMA European Capacity Platform GmbH 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.prismacapacity.spring.cqs;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.NonNull;
+import lombok.experimental.UtilityClass;
+
+/**
+ * Runs the work the orchestration hands off the calling thread: query handlers with a timeout,
+ * batches, hedges, delayed retry attempts and queued commands. Tasks run on a virtual thread per
+ * task where the runtime supports it, and on a cached pool of daemon threads otherwise. A single
+ * scheduler thread waits for delays to pass. Both are only started once needed.
+ */
+@UtilityClass
+public class CqsExecutors {
+
+  /**
+   * @return the executor tasks run on, e.g. so that continuations do not run on the thread
+   *     completing a handler's future (often an I/O thread)
+   */
+  public Executor executor() {
+    return Pool.INSTANCE;
+  }
+
+  public <T> Future<T> submit(@NonNull Callable<T> task) {
+    return Pool.INSTANCE.submit(task);
+  }
+
+  /** runs the task on the executor after the given delay */
+  public void schedule(@NonNull Runnable task, long delayMillis) {
+    Scheduler.INSTANCE.schedule(
+        () -> Pool.INSTANCE.execute(task), delayMillis, TimeUnit.MILLISECONDS);
+  }
+
+  private static class Scheduler {
+    static final ScheduledExecutorService INSTANCE =
+        Executors.newSingleThreadScheduledExecutor(
+            r -> {
+              Thread t = new Thread(r, "cqs-scheduler");
+              t.setDaemon(true);
+              return t;
+            });
+  }
+
+  private static class Pool {
+    static final ExecutorService INSTANCE = create();
+
+    private static ExecutorService create() {
+      try {
+        return (ExecutorService)
+            Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+      } catch (ReflectiveOperationException e) {
+        AtomicInteger count = new AtomicInteger();
+        return Executors.newCachedThreadPool(
+            r -> {
+              Thread t = new Thread(r, "cqs-" + count.incrementAndGet());
+              t.setDaemon(true);
+              return t;
+            });
+      }
+    }
+  }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright © 2026 PRISMA European Capacity Platform GmbH 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.prismacapacity.spring.cqs;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import lombok.NonNull;
+
+/**
+ * Tracks the invocations of a handler that are in flight, and the rate at which they complete over
+ * a sliding window of one-second buckets. Both are updated on every invocation, so they are kept in
+ * contention-friendly counters.
+ */
+public final class HandlerActivity {
+  private static final long BUCKET_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+  /** number of completed buckets the throughput is averaged over */
+  static final int WINDOW_SECONDS = 10;
+
+  private final LongSupplier nanoTime;
+  private final LongAdder inFlight = new LongAdder();
+
+  /** completions per bucket, the slot of a bucket being its epoch modulo the number of slots */
+  private final AtomicLongArray completions = new AtomicLongArray(WINDOW_SECONDS + 1);
+
+  /** the epoch (in buckets) each slot currently counts for */
+  private final AtomicLongArray epochs = new AtomicLongArray(WINDOW_SECONDS + 1);
+
+  public HandlerActivity() {
+    this(System::nanoTime);
+  }
+
+  HandlerActivity(@NonNull LongSupplier nanoTime) {
+    this.nanoTime = nanoTime;
+    for (int i = 0; i < epochs.length(); i++) {
+      epochs.set(i, Long.MIN_VALUE);
+    }
+  }
+
+  public void begin() {
+    inFlight.increment();
+  }
+
+  public void end() {
+    inFlight.decrement();
+    long epoch = nanoTime.getAsLong() / BUCKET_NANOS;
+    int slot = slotOf(epoch);
+    long current = epochs.get(slot);
+    if (current != epoch && epochs.compareAndSet(slot, current, epoch)) {
+      // completions racing with the reset may get lost, which is fine for a rate
+      completions.set(slot, 0);
+    }
+    completions.incrementAndGet(slot);
+  }
+
+  /**
+   * @return the number of invocations that began, but did not end yet
+   */
+  public long getInFlight() {
+    return inFlight.sum();
+  }
+
+  /**
+   * @return the completed invocations per second, averaged over the last {@value #WINDOW_SECONDS}
+   *     full seconds
+   */
+  public double getThroughput() {
+    long now = nanoTime.getAsLong() / BUCKET_NANOS;
+    long sum = 0;
+    for (long epoch = now - WINDOW_SECONDS; epoch < now; epoch++) {
+      int slot = slotOf(epoch);
+      if (epochs.get(slot) == epoch) {
+        sum += completions.get(slot);
+      }
+    }
+    return sum / (double) WINDOW_SECONDS;
+  }
+
+  private int slotOf(long epoch) {
+    return (int) Math.floorMod(epoch, (long) epochs.length());
+  }
+}
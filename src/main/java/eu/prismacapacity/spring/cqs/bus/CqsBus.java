@@ -0,0 +1,156 @@
+/*
+ * Copyright © 2026 PRISMA European Capacity Platform GmbH 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.prismacapacity.spring.cqs.bus;
+
+import eu.prismacapacity.spring.cqs.cmd.*;
+import eu.prismacapacity.spring.cqs.query.*;
+import java.util.HashMap;
+import java.util.Map;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.aop.framework.AopProxyUtils;
+import org.springframework.beans.factory.ListableBeanFactory;
+import org.springframework.core.ResolvableType;
+import org.springframework.util.ClassUtils;
+
+/**
+ * Dispatches commands and queries to their handlers programmatically. Handlers are indexed by the
+ * type of command/query they handle on the first dispatch, so that applications not using the bus
+ * neither pay for the index nor have their lazy handlers initialized early. A dispatch then runs
+ * the same orchestration (validation, verification, execution, metrics, logging) as the aspects,
+ * but invokes the handler's target object directly instead of going through its proxy.
+ *
+ * <p>Handlers whose type cannot be determined are skipped, and types handled by more than one
+ * handler are only rejected when a command/query of that type is dispatched.
+ *
+ * <p>Note that this also means that other proxy-based features on handlers (like
+ * {@code @Transactional}) are not applied when dispatching through the bus.
+ */
+@Slf4j
+@RequiredArgsConstructor
+@SuppressWarnings({"unchecked", "rawtypes"})
+public class CqsBus {
+  /** marks a type handled by more than one handler */
+  private static final Object AMBIGUOUS = new Object();
+
+  private final ListableBeanFactory beanFactory;
+  private final CommandHandlerOrchestrationAspect commandOrchestration;
+  private final QueryHandlerOrchestrationAspect queryOrchestration;
+
+  private volatile Map<Class<?>, Object> commandHandlers;
+  private volatile Map<Class<?>, Object> queryHandlers;
+
+  /**
+   * @return the response of the handler, null if the command is handled by a {@link CommandHandler}
+   *     or a future if it is handled asynchronously
+   * @throws IllegalArgumentException if no handler is registered for the type of command
+   * @throws IllegalStateException if several handlers are registered for the type of command
+   */
+  public <R> R send(@NonNull Command cmd) throws CommandHandlingException {
+    return (R) commandOrchestration.orchestrate(resolve(commandHandlers(), cmd.getClass()), cmd);
+  }
+
+  /**
+   * @throws IllegalArgumentException if no handler is registered for the type of query
+   * @throws IllegalStateException if several handlers are registered for the type of query
+   */
+  public <T> T ask(@NonNull Query query) throws QueryHandlingException {
+    return (T)
+        queryOrchestration.orchestrate(
+            (QueryHandler) resolve(queryHandlers(), query.getClass()), query);
+  }
+
+  private Map<Class<?>, Object> commandHandlers() {
+    Map<Class<?>, Object> handlers = commandHandlers;
+    if (handlers == null) {
+      synchronized (this) {
+        handlers = commandHandlers;
+        if (handlers == null) {
+          handlers = new HashMap<>();
+          register(handlers, CommandHandler.class);
+          register(handlers, TokenCommandHandler.class);
+          register(handlers, RespondingCommandHandler.class);
+          register(handlers, AsyncCommandHandler.class);
+          register(handlers, AsyncRespondingCommandHandler.class);
+          commandHandlers = handlers;
+        }
+      }
+    }
+    return handlers;
+  }
+
+  private Map<Class<?>, Object> queryHandlers() {
+    Map<Class<?>, Object> handlers = queryHandlers;
+    if (handlers == null) {
+      synchronized (this) {
+        handlers = queryHandlers;
+        if (handlers == null) {
+          handlers = new HashMap<>();
+          register(handlers, QueryHandler.class);
+          queryHandlers = handlers;
+        }
+      }
+    }
+    return handlers;
+  }
+
+  private static Object resolve(Map<Class<?>, Object> handlers, Class<?> type) {
+    for (Class<?> t = type; t != null; t = t.getSuperclass()) {
+      Object handler = handlers.get(t);
+      if (handler == AMBIGUOUS) {
+        throw new IllegalStateException("Multiple handlers registered for " + t.getName());
+      }
+      if (handler != null) return handler;
+    }
+    throw new IllegalArgumentException("No handler registered for " + type.getName());
+  }
+
+  private void register(Map<Class<?>, Object> handlers, Class<?> handlerType) {
+    beanFactory
+        .getBeansOfType(handlerType)
+        .forEach(
+            (name, bean) -> {
+              Object target = unwrap(bean);
+              Class<?> handledType =
+                  ResolvableType.forClass(ClassUtils.getUserClass(target))
+                      .as(handlerType)
+                      .resolveGeneric(0);
+              if (handledType == null) {
+                log.warn("Cannot determine the type handled by bean '{}', skipping it", name);
+                return;
+              }
+              Object existing = handlers.putIfAbsent(handledType, target);
+              if (existing != null && existing != target) {
+                if (existing != AMBIGUOUS) {
+                  log.warn(
+                      "Multiple handlers registered for {}, it cannot be dispatched through the bus",
+                      handledType.getName());
+                }
+                handlers.put(handledType, AMBIGUOUS);
+              }
+            });
+  }
+
+  private static Object unwrap(Object bean) {
+    Object target = bean;
+    Object next;
+    while ((next = AopProxyUtils.getSingletonTarget(target)) != null) {
+      target = next;
+    }
+    return target;
+  }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright © 2026 PRISMA European Capacity Platform GmbH 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.prismacapacity.spring.cqs.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+import lombok.NonNull;
+import lombok.Value;
+
+/**
+ * A bounded, thread-safe cache that expires entries a fixed time after they were written and evicts
+ * the least recently used entries once it is full.
+ *
+ * <p>In order to keep contention low, the cache is split into independently locked segments by the
+ * hash of the key, each holding an equal share of the capacity. LRU order is therefore maintained
+ * per segment, which approximates a global LRU closely enough for caching purposes.
+ */
+public final class ExpiringLruCache<K, V> {
+  private static final int MAX_SEGMENTS = 16;
+
+  private final Segment<K, V>[] segments;
+  private final long ttlNanos;
+  private final LongSupplier clock;
+
+  public ExpiringLruCache(int maxSize, long ttlNanos) {
+    this(maxSize, ttlNanos, System::nanoTime);
+  }
+
+  @SuppressWarnings("unchecked")
+  ExpiringLruCache(int maxSize, long ttlNanos, @NonNull LongSupplier clock) {
+    if (maxSize < 1) throw new IllegalArgumentException("maxSize must be positive");
+    if (ttlNanos < 1) throw new IllegalArgumentException("ttl must be positive");
+
+    int count = Math.min(MAX_SEGMENTS, Integer.highestOneBit(maxSize));
+    this.segments = new Segment[count];
+    for (int i = 0; i < count; i++) {
+      // distribute the remainder, so that the capacities sum up to maxSize
+      segments[i] = new Segment<>(maxSize / count + (i < maxSize % count ? 1 : 0));
+    }
+    this.ttlNanos = ttlNanos;
+    this.clock = clock;
+  }
+
+  /**
+   * @return the value cached for the key, or null if there is none or it has expired
+   */
+  public V get(@NonNull K key) {
+    return segmentFor(key).get(key, clock.getAsLong());
+  }
+
+  /**
+   * Caches the value for the key, replacing any previous value.
+   *
+   * @return the number of entries evicted to make room for it
+   */
+  public int put(@NonNull K key, @NonNull V value) {
+    return segmentFor(key).put(key, value, clock.getAsLong() + ttlNanos);
+  }
+
+  /** Removes the entry for the key, if any. */
+  public void remove(@NonNull K key) {
+    segmentFor(key).remove(key);
+  }
+
+  /**
+   * @return the number of entries, including expired ones that have not been purged yet
+   */
+  public int size() {
+    int size = 0;
+    for (Segment<K, V> s : segments) size += s.size();
+    return size;
+  }
+
+  private Segment<K, V> segmentFor(Object key) {
+    int h = key.hashCode();
+    h ^= (h >>> 16);
+    return segments[h & (segments.length - 1)];
+  }
+
+  private static final class Segment<K, V> {
+    private final int capacity;
+    private final LinkedHashMap<K, Entry<V>> map = new LinkedHashMap<>(16, 0.75f, true);
+
+    Segment(int capacity) {
+      this.capacity = capacity;
+    }
+
+    synchronized V get(K key, long now) {
+      Entry<V> e = map.get(key);
+      if (e == null) return null;
+      if (e.expiresAt - now <= 0) {
+        map.remove(key);
+        return null;
+      }
+      return e.value;
+    }
+
+    synchronized int put(K key, V value, long expiresAt) {
+      map.put(key, new Entry<>(value, expiresAt));
+      int evicted = 0;
+      for (Iterator<Map.Entry<K, Entry<V>>> it = map.entrySet().iterator();
+          map.size() > capacity && it.hasNext(); ) {
+        it.next();
+        it.remove();
+        evicted++;
+      }
+      return evicted;
+    }
+
+    synchronized void remove(K key) {
+      map.remove(key);
+    }
+
+    synchronized int size() {
+      return map.size();
+    }
+  }
+
+  @Value
+  private static class Entry<V> {
+    V value;
+    long expiresAt;
+  }
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright © 2026 PRISMA European Capacity Platform GmbH 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.prismacapacity.spring.cqs.cmd;
+
+import java.util.concurrent.CompletableFuture;
+import lombok.NonNull;
+
+/**
+ * Same as {@link CommandHandler}, but the execution completes asynchronously. Validation and
+ * verification still happen on the calling thread, the returned future is then completed with the
+ * outcome of the orchestration (exceptions being wrapped as for synchronous handlers).
+ *
+ * <p>A {@code RetryConfiguration} applies to the whole attempt, including validation and
+ * verification. The next attempt is scheduled once the backoff has passed, instead of blocking a
+ * thread in the meantime.
+ */
+public interface AsyncCommandHandler<C extends Command> extends ICommandHandler<C> {
+
+  @NonNull
+  CompletableFuture<Void> handle(@NonNull C cmd) throws CommandHandlingException;
+}
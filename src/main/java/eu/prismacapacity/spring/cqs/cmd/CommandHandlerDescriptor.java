@@ -0,0 +1,144 @@
+/*
+ * Copyright © 2026 PRISMA European Capacity Platform GmbH 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.prismacapacity.spring.cqs.cmd;
+
+import eu.prismacapacity.spring.cqs.HandlerActivity;
+import eu.prismacapacity.spring.cqs.deadline.Deadline;
+import eu.prismacapacity.spring.cqs.limit.*;
+import eu.prismacapacity.spring.cqs.retry.RetryBudget;
+import eu.prismacapacity.spring.cqs.retry.RetryUtils;
+import java.util.List;
+import java.util.Optional;
+import lombok.NonNull;
+import lombok.Value;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.retry.RetryTemplate;
+
+/**
+ * Everything the orchestration needs to know about a handler class. It is derived once per class
+ * and cached by the aspect, so that the hot path does not need to inspect the handler again.
+ */
+@Value
+class CommandHandlerDescriptor {
+
+  enum Kind {
+    /** {@link CommandHandler}, returns void */
+    VOID,
+    /** {@link TokenCommandHandler} */
+    TOKEN,
+    /** {@link RespondingCommandHandler} */
+    RESPONDING,
+    /** {@link AsyncCommandHandler}, completes with null */
+    ASYNC_VOID,
+    /** {@link AsyncRespondingCommandHandler} */
+    ASYNC_RESPONDING;
+
+    boolean allowsNullResult() {
+      return this == VOID || this == ASYNC_VOID;
+    }
+
+    /** whether the handler synchronously returns a response (that can be stored) */
+    boolean hasResponse() {
+      return this == TOKEN || this == RESPONDING;
+    }
+
+    boolean isAsync() {
+      return this == ASYNC_VOID || this == ASYNC_RESPONDING;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    Object invoke(@NonNull Object handler, @NonNull Command cmd) {
+      switch (this) {
+        case VOID:
+          ((CommandHandler) handler).handle(cmd);
+          return null;
+        case TOKEN:
+          return ((TokenCommandHandler) handler).handle(cmd);
+        case ASYNC_VOID:
+          return ((AsyncCommandHandler) handler).handle(cmd);
+        case ASYNC_RESPONDING:
+          return ((AsyncRespondingCommandHandler) handler).handle(cmd);
+        default:
+          return ((RespondingCommandHandler) handler).handle(cmd);
+      }
+    }
+
+    static Kind of(@NonNull Class<?> handlerClass) {
+      if (CommandHandler.class.isAssignableFrom(handlerClass)) return VOID;
+      if (TokenCommandHandler.class.isAssignableFrom(handlerClass)) return TOKEN;
+      if (RespondingCommandHandler.class.isAssignableFrom(handlerClass)) return RESPONDING;
+      if (AsyncCommandHandler.class.isAssignableFrom(handlerClass)) return ASYNC_VOID;
+      if (AsyncRespondingCommandHandler.class.isAssignableFrom(handlerClass))
+        return ASYNC_RESPONDING;
+      throw new IllegalArgumentException(handlerClass + " is not a command handler");
+    }
+  }
+
+  @NonNull Class<?> handlerClass;
+
+  /** used to tag metrics */
+  @NonNull String name;
+
+  @NonNull Kind kind;
+
+  @NonNull Optional<RetryTemplate> retryTemplate;
+
+  @NonNull Logger logger;
+
+  /** time budget of an invocation including nested ones, 0 if none (see {@link Deadline}) */
+  long deadlineMillis;
+
+  /** limits concurrent invocations, if annotated with {@link Bulkhead} */
+  @NonNull Optional<SemaphoreBulkhead> bulkhead;
+
+  /** adapts the limit of concurrent invocations, if annotated with {@link AdaptiveLimit} */
+  @NonNull Optional<VegasLimiter> adaptiveLimiter;
+
+  /** all limits that apply, in the order their permits are acquired */
+  @NonNull List<Limiter> limiters;
+
+  /** invocations in flight and throughput */
+  @NonNull HandlerActivity activity;
+
+  static CommandHandlerDescriptor of(@NonNull Class<?> handlerClass) {
+    return of(handlerClass, null);
+  }
+
+  /**
+   * @param globalRetryBudget limits retries in addition to the handler's own budget, null if none
+   */
+  static CommandHandlerDescriptor of(
+      @NonNull Class<?> handlerClass, RetryBudget globalRetryBudget) {
+    Deadline deadline = handlerClass.getAnnotation(Deadline.class);
+    Optional<SemaphoreBulkhead> bulkhead =
+        Optional.ofNullable(handlerClass.getAnnotation(Bulkhead.class)).map(SemaphoreBulkhead::of);
+    Optional<VegasLimiter> adaptiveLimiter =
+        Optional.ofNullable(handlerClass.getAnnotation(AdaptiveLimit.class)).map(VegasLimiter::of);
+    return new CommandHandlerDescriptor(
+        handlerClass,
+        handlerClass.getName(),
+        Kind.of(handlerClass),
+        RetryUtils.retryTemplateFor(handlerClass, globalRetryBudget),
+        LoggerFactory.getLogger(handlerClass),
+        deadline == null ? 0 : deadline.millis(),
+        bulkhead,
+        adaptiveLimiter,
+        // the adaptive limit rejects right away, so check it before waiting for the bulkhead
+        LimitUtils.present(adaptiveLimiter, bulkhead),
+        new HandlerActivity());
+  }
+}
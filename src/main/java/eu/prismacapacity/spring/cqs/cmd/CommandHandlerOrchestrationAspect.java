@@ -1,5 +1,5 @@
 /*
- * Copyright © 2020-2024 PRISMA European Capacity Platform GmbH 
+ * Copyright © 2020-2026 PRISMA European Capacity Platform GmbH 
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -15,16 +15,33 @@
  */
 package eu.prismacapacity.spring.cqs.cmd;
 
+import eu.prismacapacity.spring.cqs.BeanValidation;
+import eu.prismacapacity.spring.cqs.CqsExecutors;
+import eu.prismacapacity.spring.cqs.deadline.DeadlineContext;
+import eu.prismacapacity.spring.cqs.limit.LimitUtils;
+import eu.prismacapacity.spring.cqs.limit.Limiter;
 import eu.prismacapacity.spring.cqs.metrics.CommandMetrics;
+import eu.prismacapacity.spring.cqs.metrics.HandlerObservations;
+import eu.prismacapacity.spring.cqs.metrics.HandlerSlo;
+import eu.prismacapacity.spring.cqs.metrics.Phase;
+import eu.prismacapacity.spring.cqs.retry.RetryBudget;
 import eu.prismacapacity.spring.cqs.retry.RetryUtils;
+import io.micrometer.observation.ObservationRegistry;
 import jakarta.validation.ConstraintViolation;
 import jakarta.validation.Validator;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import lombok.*;
 import lombok.extern.slf4j.Slf4j;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
+import org.slf4j.Logger;
 
 /**
  * Orchestrates the validation/verification/execution handling of a (Responding)CommandHandler and
@@ -33,7 +50,6 @@ import org.aspectj.lang.annotation.Aspect;
  */
 @Aspect
 @SuppressWarnings({"unchecked", "java:S1141"})
-@RequiredArgsConstructor
 @Slf4j
 public final class CommandHandlerOrchestrationAspect {
 
@@ -43,81 +59,501 @@ public final class CommandHandlerOrchestrationAspect {
       "execution(* eu.prismacapacity.spring.cqs.cmd.RespondingCommandHandler.handle(..))";
   private static final String PC_TokenCommandHandler =
       "execution(* eu.prismacapacity.spring.cqs.cmd.TokenCommandHandler.handle(..))";
+  private static final String PC_AsyncCommandHandler =
+      "execution(* eu.prismacapacity.spring.cqs.cmd.AsyncCommandHandler.handle(..))";
+  private static final String PC_AsyncRespondingCommandHandler =
+      "execution(* eu.prismacapacity.spring.cqs.cmd.AsyncRespondingCommandHandler.handle(..))";
 
   final Validator validator;
 
   final CommandMetrics metrics;
 
+  /** responses of executed IdempotentCommands, if any */
+  private final IdempotencyStore idempotencyStore;
+
+  private final HandlerObservations observations;
+
+  /** limits the retries of all handlers in addition to their own budgets, if any */
+  private final RetryBudget globalRetryBudget;
+
+  private final Map<Class<?>, CommandHandlerDescriptor> descriptors = new ConcurrentHashMap<>();
+
+  private final BeanValidation beanValidation = new BeanValidation();
+
+  private final CommandPartitions partitions = new CommandPartitions(CqsExecutors.executor());
+
+  public CommandHandlerOrchestrationAspect(
+      @NonNull Validator validator, @NonNull CommandMetrics metrics) {
+    this(validator, metrics, null);
+  }
+
+  /**
+   * @param idempotencyStore keeps the responses of executed {@link IdempotentCommand}s, null to
+   *     execute them every time
+   */
+  public CommandHandlerOrchestrationAspect(
+      @NonNull Validator validator,
+      @NonNull CommandMetrics metrics,
+      IdempotencyStore idempotencyStore) {
+    this(validator, metrics, idempotencyStore, null);
+  }
+
+  /**
+   * @param idempotencyStore keeps the responses of executed {@link IdempotentCommand}s, null to
+   *     execute them every time
+   * @param observationRegistry observes every attempt of an invocation (see {@link
+   *     HandlerObservations}), null to not observe them
+   */
+  public CommandHandlerOrchestrationAspect(
+      @NonNull Validator validator,
+      @NonNull CommandMetrics metrics,
+      IdempotencyStore idempotencyStore,
+      ObservationRegistry observationRegistry) {
+    this(validator, metrics, idempotencyStore, observationRegistry, null);
+  }
+
+  /**
+   * @param idempotencyStore keeps the responses of executed {@link IdempotentCommand}s, null to
+   *     execute them every time
+   * @param observationRegistry observes every attempt of an invocation (see {@link
+   *     HandlerObservations}), null to not observe them
+   * @param globalRetryBudget limits the retries of all handlers in addition to their own budgets,
+   *     null if none
+   */
+  public CommandHandlerOrchestrationAspect(
+      @NonNull Validator validator,
+      @NonNull CommandMetrics metrics,
+      IdempotencyStore idempotencyStore,
+      ObservationRegistry observationRegistry,
+      RetryBudget globalRetryBudget) {
+    this.validator = validator;
+    this.metrics = metrics;
+    this.idempotencyStore = idempotencyStore;
+    this.observations = HandlerObservations.of(observationRegistry);
+    this.globalRetryBudget = globalRetryBudget;
+  }
+
   @Around(
-      PC_CommandHandler + " || " + PC_RespondingCommandHandler + " || " + PC_TokenCommandHandler)
+      PC_CommandHandler
+          + " || "
+          + PC_RespondingCommandHandler
+          + " || "
+          + PC_TokenCommandHandler
+          + " || "
+          + PC_AsyncCommandHandler
+          + " || "
+          + PC_AsyncRespondingCommandHandler)
   public Object orchestrate(ProceedingJoinPoint joinPoint) throws Throwable {
-    val signature = joinPoint.getStaticPart().getSignature();
-    val clazz = signature.getDeclaringTypeName();
+    val target = joinPoint.getTarget();
+    return orchestrate(
+        describe(target), target, (Command) joinPoint.getArgs()[0], joinPoint::proceed);
+  }
+
+  /**
+   * Runs the same orchestration as the aspect for a direct invocation of the given handler, without
+   * going through a proxy. The handler is expected to be the target object, not the proxy, as the
+   * orchestration would otherwise happen twice.
+   *
+   * @param handler one of {@link CommandHandler}, {@link TokenCommandHandler}, {@link
+   *     RespondingCommandHandler}, {@link AsyncCommandHandler} or {@link
+   *     AsyncRespondingCommandHandler}
+   * @return the handler's response, null for a {@link CommandHandler} or a future for asynchronous
+   *     handlers
+   */
+  public Object orchestrate(@NonNull Object handler, @NonNull Command cmd)
+      throws CommandHandlingException {
+    val descriptor = describe(handler);
+    return orchestrate(descriptor, handler, cmd, () -> descriptor.getKind().invoke(handler, cmd));
+  }
+
+  private Object orchestrate(
+      CommandHandlerDescriptor descriptor, Object target, Command cmd, Invocation invocation) {
+    val activity = descriptor.getActivity();
+    activity.begin();
+    boolean async = false;
+    try (DeadlineContext.Scope scope = enterDeadline(descriptor.getDeadlineMillis())) {
+      val partition = partitions.keyOf(cmd);
+      // process renders it again per attempt, this one is only needed by the observations
+      String renderedCommand = observations.isEnabled() ? render(cmd) : null;
+      if (descriptor.getKind().isAsync()) {
+        CompletableFuture<Object> future =
+            RetryUtils.withOptionalRetryAsync(
+                descriptor.getRetryTemplate(),
+                (attempts, backOffNanos, outcome) ->
+                    metrics.logRetries(descriptor.getName(), attempts, backOffNanos, outcome),
+                (count) ->
+                    observations.observeAsync(
+                        HandlerObservations.COMMAND_OBSERVATION_NAME,
+                        descriptor.getName(),
+                        count,
+                        renderedCommand,
+                        () ->
+                            metrics.timedCommandAsync(
+                                descriptor.getName(),
+                                count,
+                                () ->
+                                    partitions.serializeAsync(
+                                        partition,
+                                        () ->
+                                            processAsync(
+                                                descriptor,
+                                                (ICommandHandler<Command>) target,
+                                                cmd,
+                                                invocation)))));
+        future.whenComplete((r, e) -> activity.end());
+        async = true;
+        return future;
+      }
+      return RetryUtils.withOptionalRetry(
+          descriptor.getRetryTemplate(),
+          (attempts, backOffNanos, outcome) ->
+              metrics.logRetries(descriptor.getName(), attempts, backOffNanos, outcome),
+          (count) ->
+              observations.observe(
+                  HandlerObservations.COMMAND_OBSERVATION_NAME,
+                  descriptor.getName(),
+                  count,
+                  renderedCommand,
+                  () ->
+                      metrics.timedCommand(
+                          descriptor.getName(),
+                          count,
+                          () ->
+                              partitions.serialize(
+                                  partition,
+                                  () ->
+                                      process(
+                                          descriptor,
+                                          (ICommandHandler<Command>) target,
+                                          cmd,
+                                          invocation)))));
+    } finally {
+      if (!async) {
+        activity.end();
+      }
+    }
+  }
+
+  private static DeadlineContext.Scope enterDeadline(long deadlineMillis) {
+    return deadlineMillis > 0
+        ? DeadlineContext.within(deadlineMillis, TimeUnit.MILLISECONDS)
+        : DeadlineContext.Scope.NONE;
+  }
+
+  CommandHandlerDescriptor describe(@NonNull Object target) {
+    Class<?> handlerClass = target.getClass();
+    CommandHandlerDescriptor descriptor = descriptors.get(handlerClass);
+    if (descriptor == null) {
+      descriptor = descriptors.computeIfAbsent(handlerClass, this::create);
+    }
+    return descriptor;
+  }
+
+  private CommandHandlerDescriptor create(Class<?> handlerClass) {
+    val descriptor = CommandHandlerDescriptor.of(handlerClass, globalRetryBudget);
+    descriptor
+        .getBulkhead()
+        .ifPresent(
+            b -> metrics.registerBulkhead(descriptor.getName(), b::getInFlight, b::getQueued));
+    descriptor
+        .getAdaptiveLimiter()
+        .ifPresent(l -> metrics.registerLimit(descriptor.getName(), l::getLimit));
+    RetryUtils.retryBudgetOf(descriptor.getRetryTemplate())
+        .ifPresent(b -> metrics.registerRetryBudget(descriptor.getName(), b));
+    metrics.registerActivity(descriptor.getName(), descriptor.getActivity());
+    Optional.ofNullable(handlerClass.getAnnotation(HandlerSlo.class))
+        .ifPresent(s -> metrics.registerSlo(descriptor.getName(), s));
+    return descriptor;
+  }
 
-    return RetryUtils.withOptionalRetry(
-        joinPoint.getTarget().getClass(),
-        (count) -> metrics.timedCommand(clazz, count, () -> process(joinPoint)));
+  @VisibleForTesting
+  Object process(ProceedingJoinPoint joinPoint) throws CommandHandlingException {
+    val target = joinPoint.getTarget();
+    return process(
+        describe(target),
+        (ICommandHandler<Command>) target,
+        (Command) joinPoint.getArgs()[0],
+        joinPoint::proceed);
   }
 
   @VisibleForTesting
-  <C extends Command> Object process(ProceedingJoinPoint joinPoint)
+  <C extends Command> Object process(
+      CommandHandlerDescriptor descriptor, ICommandHandler<C> target, C cmd, Invocation invocation)
       throws CommandHandlingException {
 
-    C cmd = (C) joinPoint.getArgs()[0];
+    long rendering = startPhase();
     String commandType = LogRenderer.getType(cmd);
-    ICommandHandler<C> target = (ICommandHandler<C>) joinPoint.getTarget();
-    String renderedCommand;
+    Logger logger = descriptor.getLogger();
+    String renderedCommand = render(cmd);
+    endPhase(descriptor, Phase.RENDERING, rendering);
+
+    val idempotencyKey = idempotencyKeyOf(descriptor, cmd);
+    if (idempotencyKey != null) {
+      val stored = idempotencyStore.get(idempotencyKey);
+      if (stored.isPresent()) {
+        logSuccess(descriptor, commandType, renderedCommand, stored.get());
+        return stored.get();
+      }
+    }
+
+    validateAndVerify(descriptor, commandType, renderedCommand, target, cmd);
+    failIfExpired(logger, commandType, renderedCommand, "handling");
+    val permit = acquire(descriptor, logger, commandType, renderedCommand);
+
+    // execution
+    Object result;
+    long execution = startPhase();
+    boolean succeeded = false;
+    try {
+      result = invocation.proceed();
+      succeeded = true;
+    } catch (Throwable e) {
+      Logging.logAndThrow(logger, commandType, renderedCommand, CommandHandlingException.wrap(e));
+      return null; // dead code
+    } finally {
+      endPhase(descriptor, Phase.EXECUTION, execution);
+      if (permit != null) {
+        // only successful executions tell the adaptive limit something about the load
+        if (succeeded) {
+          permit.release();
+        } else {
+          permit.drop();
+        }
+      }
+    }
+    if (result == null && !descriptor.getKind().allowsNullResult()) {
+      Logging.logAndThrow(
+          logger,
+          commandType,
+          renderedCommand,
+          new CommandHandlingException("Response must not be null"));
+    }
+    if (idempotencyKey != null) {
+      idempotencyStore.put(idempotencyKey, result);
+    }
+    logSuccess(descriptor, commandType, renderedCommand, result);
+    return result;
+  }
+
+  @VisibleForTesting
+  <C extends Command> CompletableFuture<Object> processAsync(
+      CommandHandlerDescriptor descriptor,
+      ICommandHandler<C> target,
+      C cmd,
+      Invocation invocation) {
+
+    long rendering = startPhase();
+    String commandType = LogRenderer.getType(cmd);
+    Logger logger = descriptor.getLogger();
+    String renderedCommand = render(cmd);
+    endPhase(descriptor, Phase.RENDERING, rendering);
+
+    CompletableFuture<?> future = null;
+    Limiter.Permit permit = null;
+    long execution = 0;
+    try {
+      validateAndVerify(descriptor, commandType, renderedCommand, target, cmd);
+      failIfExpired(logger, commandType, renderedCommand, "handling");
+      permit = acquire(descriptor, logger, commandType, renderedCommand);
+
+      // execution
+      execution = startPhase();
+      try {
+        future = (CompletableFuture<?>) invocation.proceed();
+      } catch (Throwable e) {
+        Logging.logAndThrow(logger, commandType, renderedCommand, CommandHandlingException.wrap(e));
+      }
+      if (future == null) {
+        Logging.logAndThrow(
+            logger,
+            commandType,
+            renderedCommand,
+            new CommandHandlingException("Response must not be null"));
+      }
+    } catch (CommandHandlingException e) {
+      endPhase(descriptor, Phase.EXECUTION, execution);
+      if (permit != null) {
+        permit.drop();
+      }
+      CompletableFuture<Object> failed = new CompletableFuture<>();
+      failed.completeExceptionally(e);
+      return failed;
+    }
+
+    val acquired = permit;
+    val started = execution;
+    if (acquired != null || started != 0) {
+      future.whenComplete(
+          (r, e) -> {
+            endPhase(descriptor, Phase.EXECUTION, started);
+            if (acquired == null) {
+              return;
+            }
+            if (e == null) {
+              acquired.release();
+            } else {
+              acquired.drop();
+            }
+          });
+    }
+    return future.handle(
+        (result, e) -> {
+          if (e != null) {
+            Throwable cause =
+                e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            Logging.logAndThrow(
+                logger, commandType, renderedCommand, CommandHandlingException.wrap(cause));
+          }
+          if (result == null && !descriptor.getKind().allowsNullResult()) {
+            Logging.logAndThrow(
+                logger,
+                commandType,
+                renderedCommand,
+                new CommandHandlingException("Response must not be null"));
+          }
+          logSuccess(descriptor, commandType, renderedCommand, result);
+          return result;
+        });
+  }
+
+  /**
+   * @return the key to store the response under, null if it is not to be stored
+   */
+  private String idempotencyKeyOf(CommandHandlerDescriptor descriptor, Command cmd) {
+    if (idempotencyStore == null
+        || !(cmd instanceof IdempotentCommand)
+        || !descriptor.getKind().hasResponse()) {
+      return null;
+    }
+    return cmd.getClass().getName() + "#" + ((IdempotentCommand) cmd).getIdempotencyKey();
+  }
+
+  private static String render(Command cmd) {
     try {
       // happens before executing, so that possible modifications are not reflected
-      renderedCommand = cmd.toLogString();
+      return cmd.toLogString();
     } catch (Throwable e) {
       log.warn(
           "A command of {} failed to render for logging. This is a bug, please report to https://github.com/prisma-capacity/spring-cqs/issues . Command execution is not impaired, though.",
           cmd.getClass(),
           e);
-      renderedCommand = cmd.getClass().getName() + "( failed to render )";
+      return cmd.getClass().getName() + "( failed to render )";
     }
-    // validator based validate
-    Set<ConstraintViolation<C>> violations = validator.validate(cmd);
-    if (!violations.isEmpty()) {
+  }
+
+  /** fails fast if the deadline of the current thread has passed */
+  private static void failIfExpired(
+      Logger logger, String commandType, String renderedCommand, String phase)
+      throws CommandTimeoutException {
+    if (DeadlineContext.isExpired()) {
       Logging.logAndThrow(
-          target, commandType, renderedCommand, new CommandValidationException(violations));
+          logger,
+          commandType,
+          renderedCommand,
+          new CommandTimeoutException("Deadline exceeded before " + phase));
     }
+  }
 
-    // custom validate
+  /**
+   * @return the permit to release after execution, null if the handler has no limit
+   */
+  private Limiter.Permit acquire(
+      CommandHandlerDescriptor descriptor,
+      Logger logger,
+      String commandType,
+      String renderedCommand)
+      throws CommandRejectedException {
+    if (descriptor.getLimiters().isEmpty()) {
+      return null;
+    }
+    Limiter.Permit permit;
     try {
-      target.validate(cmd);
-    } catch (Exception e) {
-      Logging.logAndThrow(target, commandType, renderedCommand, CommandValidationException.wrap(e));
+      permit = LimitUtils.tryAcquireAll(descriptor.getLimiters());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      permit = null;
+    }
+    if (permit == null) {
+      metrics.logRejected(descriptor.getName());
+      Logging.logAndThrow(
+          logger,
+          commandType,
+          renderedCommand,
+          new CommandRejectedException(descriptor.getName() + " is at its concurrency limit"));
     }
+    return permit;
+  }
+
+  private <C extends Command> void validateAndVerify(
+      CommandHandlerDescriptor descriptor,
+      String commandType,
+      String renderedCommand,
+      ICommandHandler<C> target,
+      C cmd)
+      throws CommandHandlingException {
+    Logger logger = descriptor.getLogger();
+    failIfExpired(logger, commandType, renderedCommand, "validation");
+
+    long validation = startPhase();
+    try {
+      // validator based validate
+      Set<ConstraintViolation<C>> violations = beanValidation.validate(validator, cmd);
+      if (!violations.isEmpty()) {
+        Logging.logAndThrow(
+            logger, commandType, renderedCommand, new CommandValidationException(violations));
+      }
+
+      // custom validate
+      try {
+        target.validate(cmd);
+      } catch (Exception e) {
+        Logging.logAndThrow(
+            logger, commandType, renderedCommand, CommandValidationException.wrap(e));
+      }
+    } finally {
+      endPhase(descriptor, Phase.VALIDATION, validation);
+    }
+
+    failIfExpired(logger, commandType, renderedCommand, "verification");
 
     // verification
+    long verification = startPhase();
     try {
       target.verify(cmd);
     } catch (Exception e) {
       Logging.logAndThrow(
-          target, commandType, renderedCommand, CommandVerificationException.wrap(e));
+          logger, commandType, renderedCommand, CommandVerificationException.wrap(e));
+    } finally {
+      endPhase(descriptor, Phase.VERIFICATION, verification);
     }
+  }
 
-    // execution
-    try {
-      val result = joinPoint.proceed();
-      if (result == null) {
-        if (joinPoint.getTarget() instanceof CommandHandler) {
-          // ok for a void return
-        } else {
-          Logging.logAndThrow(
-              target,
-              commandType,
-              renderedCommand,
-              new CommandHandlingException("Response must not be null"));
-        }
-      }
-      Logging.logSuccess(target, commandType, renderedCommand, result);
-      return result;
-    } catch (Throwable e) {
-      Logging.logAndThrow(target, commandType, renderedCommand, CommandHandlingException.wrap(e));
+  private void logSuccess(
+      CommandHandlerDescriptor descriptor,
+      String commandType,
+      String renderedCommand,
+      Object result) {
+    long logging = startPhase();
+    Logging.logSuccess(descriptor.getLogger(), commandType, renderedCommand, result);
+    endPhase(descriptor, Phase.LOGGING, logging);
+  }
+
+  /**
+   * @return the start of a phase, 0 if phases are not timed
+   */
+  private long startPhase() {
+    return metrics.isPhaseTimingEnabled() ? System.nanoTime() : 0;
+  }
+
+  private void endPhase(CommandHandlerDescriptor descriptor, Phase phase, long start) {
+    if (start != 0) {
+      metrics.logPhase(descriptor.getName(), phase, System.nanoTime() - start);
     }
-    return null; // dead code
+  }
+
+  /** the actual call of the handle method, either through the join point or directly */
+  @FunctionalInterface
+  interface Invocation {
+    Object proceed() throws Throwable;
   }
 }
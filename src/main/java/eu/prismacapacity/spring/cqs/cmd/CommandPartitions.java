@@ -0,0 +1,198 @@
+/*
+ * Copyright © 2026 PRISMA European Capacity Platform GmbH 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.prismacapacity.spring.cqs.cmd;
+
+import eu.prismacapacity.spring.cqs.deadline.DeadlineContext;
+import java.lang.reflect.Field;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import lombok.NonNull;
+import lombok.Value;
+import org.springframework.util.ReflectionUtils;
+
+/**
+ * Serializes command executions per partition key (see {@link PartitionedBy}). A partition only
+ * exists while executions of its key are running or queued, so that memory does not grow with the
+ * number of keys, and commands of different keys never wait for each other. That way a handler
+ * sending a nested command for another aggregate cannot deadlock against an unrelated one.
+ */
+final class CommandPartitions {
+  /** runs queued asynchronous executions once their predecessor completed */
+  private final Executor executor;
+
+  private final Map<Key, Partition> partitions = new ConcurrentHashMap<>();
+
+  private final Map<Class<?>, Optional<Field>> keyFields = new ConcurrentHashMap<>();
+
+  CommandPartitions(@NonNull Executor executor) {
+    this.executor = executor;
+  }
+
+  @Value
+  static class Key {
+    Class<?> commandType;
+    Object value;
+  }
+
+  private static final class Partition {
+    final ReentrantLock lock = new ReentrantLock(true);
+
+    /** executions running or waiting, guarded by the map of partitions */
+    int users;
+
+    /** last asynchronous execution, guarded by the partition itself */
+    CompletableFuture<?> tail = CompletableFuture.completedFuture(null);
+  }
+
+  /**
+   * @return the partition key of the command, or null if it is not partitioned
+   */
+  Key keyOf(@NonNull Command cmd) {
+    Optional<Field> field = keyFields.get(cmd.getClass());
+    if (field == null) {
+      field = keyFields.computeIfAbsent(cmd.getClass(), CommandPartitions::keyField);
+    }
+    if (!field.isPresent()) {
+      return null;
+    }
+    Object value = ReflectionUtils.getField(field.get(), cmd);
+    return value == null ? null : new Key(cmd.getClass(), value);
+  }
+
+  /**
+   * Runs the execution once the previous one of the same key has completed, waiting no longer than
+   * the deadline of the current thread (see {@link DeadlineContext}) allows.
+   *
+   * @throws CommandTimeoutException if the deadline passed while waiting
+   */
+  <T> T serialize(Key key, @NonNull Supplier<T> execution) throws CommandTimeoutException {
+    if (key == null) {
+      return execution.get();
+    }
+    Partition partition = acquire(key);
+    try {
+      lock(partition, key);
+      try {
+        return execution.get();
+      } finally {
+        partition.lock.unlock();
+      }
+    } finally {
+      release(key);
+    }
+  }
+
+  private static void lock(Partition partition, Key key) throws CommandTimeoutException {
+    if (!DeadlineContext.isPresent()) {
+      partition.lock.lock();
+      return;
+    }
+    boolean locked;
+    try {
+      locked = partition.lock.tryLock(DeadlineContext.remainingNanos(), TimeUnit.NANOSECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new CommandHandlingException("Interrupted while waiting for partition " + key, e);
+    }
+    if (!locked) {
+      throw new CommandTimeoutException("Deadline exceeded while waiting for partition " + key);
+    }
+  }
+
+  /**
+   * Starts the execution once the previous one of the same key has completed. If it has to wait,
+   * the execution runs on the executor (with the deadline of the caller) rather than on the thread
+   * completing the previous one.
+   */
+  <T> CompletableFuture<T> serializeAsync(
+      Key key, @NonNull Supplier<CompletableFuture<T>> execution) {
+    if (key == null) {
+      return execution.get();
+    }
+    Partition partition = acquire(key);
+    CompletableFuture<T> next = new CompletableFuture<>();
+    CompletableFuture<?> previous;
+    synchronized (partition) {
+      previous = partition.tail;
+      partition.tail = next;
+    }
+    next.whenComplete((r, e) -> release(key));
+
+    Runnable start =
+        DeadlineContext.propagate(
+            () -> {
+              try {
+                execution
+                    .get()
+                    .whenComplete(
+                        (r, e) -> {
+                          if (e != null) {
+                            next.completeExceptionally(e);
+                          } else {
+                            next.complete(r);
+                          }
+                        });
+              } catch (Throwable e) {
+                next.completeExceptionally(e);
+              }
+            });
+    if (previous.isDone()) {
+      start.run();
+    } else {
+      previous.whenCompleteAsync((r, e) -> start.run(), executor);
+    }
+    return next;
+  }
+
+  private Partition acquire(Key key) {
+    return partitions.compute(
+        key,
+        (k, partition) -> {
+          Partition p = partition == null ? new Partition() : partition;
+          p.users++;
+          return p;
+        });
+  }
+
+  private void release(Key key) {
+    partitions.computeIfPresent(key, (k, partition) -> --partition.users == 0 ? null : partition);
+  }
+
+  /** number of partitions currently in use */
+  int size() {
+    return partitions.size();
+  }
+
+  private static Optional<Field> keyField(Class<?> commandType) {
+    PartitionedBy partitionedBy = commandType.getAnnotation(PartitionedBy.class);
+    if (partitionedBy == null) {
+      return Optional.empty();
+    }
+    Field field = ReflectionUtils.findField(commandType, partitionedBy.value());
+    if (field == null) {
+      throw new IllegalStateException(
+          commandType.getName() + " has no field '" + partitionedBy.value() + "' to partition by");
+    }
+    ReflectionUtils.makeAccessible(field);
+    return Optional.of(field);
+  }
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright © 2026 PRISMA European Capacity Platform GmbH 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.prismacapacity.spring.cqs.cmd;
+
+import java.util.Optional;
+import lombok.NonNull;
+
+/**
+ * Keeps the responses of executed {@link IdempotentCommand}s. Implement this to share them between
+ * instances, for example in a database or a distributed cache. Keys consist of the type of the
+ * command and its idempotency key.
+ */
+public interface IdempotencyStore {
+
+  /**
+   * @return the response stored for the key, if any
+   */
+  Optional<Object> get(@NonNull String key);
+
+  /** Stores the response (a CommandTokenResponse or CommandValueResponse) for the key. */
+  void put(@NonNull String key, @NonNull Object response);
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright © 2026 PRISMA European Capacity Platform GmbH 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.prismacapacity.spring.cqs.cmd;
+
+import lombok.NonNull;
+
+/**
+ * A command that may be sent more than once (for example, when a client retries after a network
+ * failure), but must only be executed once. The response of a successful execution by a {@link
+ * TokenCommandHandler} or {@link RespondingCommandHandler} is kept in the {@link IdempotencyStore}
+ * and returned for subsequent commands of the same type with the same key, without verifying or
+ * handling them again.
+ *
+ * <p>Duplicates sent while the first command is still executing are not detected. Use {@link
+ * PartitionedBy} on the idempotency key if that matters.
+ */
+public interface IdempotentCommand extends Command {
+  @NonNull
+  String getIdempotencyKey();
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright © 2026 PRISMA European Capacity Platform GmbH 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.prismacapacity.spring.cqs.cmd;
+
+import eu.prismacapacity.spring.cqs.cache.ExpiringLruCache;
+import java.time.Duration;
+import java.util.Optional;
+import lombok.NonNull;
+
+/**
+ * Keeps responses in memory for the given time, evicting the least recently used ones once maxSize
+ * is reached. Only detects duplicates that reach the same instance.
+ */
+public class InMemoryIdempotencyStore implements IdempotencyStore {
+  private final ExpiringLruCache<String, Object> responses;
+
+  public InMemoryIdempotencyStore(int maxSize, @NonNull Duration ttl) {
+    this.responses = new ExpiringLruCache<>(maxSize, ttl.toNanos());
+  }
+
+  @Override
+  public Optional<Object> get(@NonNull String key) {
+    return Optional.ofNullable(responses.get(key));
+  }
+
+  @Override
+  public void put(@NonNull String key, @NonNull Object response) {
+    responses.put(key, response);
+  }
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright © 2024 PRISMA European Capacity Platform GmbH 
+ * Copyright © 2024-2026 PRISMA European Capacity Platform GmbH 
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -19,6 +19,7 @@ import eu.prismacapacity.spring.cqs.cmd.logging.*;
 import jakarta.annotation.Nullable;
 import java.lang.reflect.*;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.*;
 import lombok.NonNull;
 import lombok.experimental.UtilityClass;
@@ -36,14 +37,17 @@ public class LogRenderer {
   private static final AlreadyVisitedObjectsHolder visitedHolder =
       new AlreadyVisitedObjectsHolder();
 
+  /** fields to render per type, resolved once in order to keep reflection off the hot path */
+  private static final Map<Class<?>, List<Field>> renderedFields = new ConcurrentHashMap<>();
+
   public String renderDefault(@NonNull Object object) {
     boolean initialized = visitedHolder.initialize();
     try {
       visitedHolder.get().put(object, object);
       StringBuilder sb = new StringBuilder(getType(object)).append(OPEN);
       sb.append(
-          getAllFields(object.getClass()).stream()
-              .map(f -> renderField(f, object))
+          getRenderedFields(object.getClass()).stream()
+              .map(f -> renderKeyValue(f.getName(), getValue(f, object)))
               .filter(Objects::nonNull)
               .collect(Collectors.joining(DELIMITER)));
       return sb.append(CLOSE).toString();
@@ -79,15 +83,27 @@ public class LogRenderer {
     }
   }
 
-  static String renderField(Field field, Object target) {
-    if (field.getAnnotation(LogExclude.class) == null) {
-      return renderKeyValue(field.getName(), getValue(field, target));
-    } else return null;
+  static List<Field> getRenderedFields(@NonNull Class<?> cls) {
+    return renderedFields.computeIfAbsent(
+        cls,
+        c -> {
+          List<Field> fields = getAllFields(c);
+          fields.removeIf(f -> f.getAnnotation(LogExclude.class) != null);
+          fields.forEach(LogRenderer::makeAccessible);
+          return Collections.unmodifiableList(fields);
+        });
   }
 
-  static Object getValue(Field field, Object target) {
+  private static void makeAccessible(Field field) {
     try {
       field.setAccessible(true);
+    } catch (RuntimeException e) {
+      // getValue will report the failure when rendering
+    }
+  }
+
+  static Object getValue(Field field, Object target) {
+    try {
       return field.get(target);
     } catch (RuntimeException | ReflectiveOperationException e) {
       // we want to log that here, but do not throw an exception
@@ -1,5 +1,5 @@
 /*
- * Copyright © 2024 PRISMA European Capacity Platform GmbH 
+ * Copyright © 2024-2026 PRISMA European Capacity Platform GmbH 
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -19,7 +19,7 @@ import jakarta.annotation.Nullable;
 import lombok.NonNull;
 import lombok.experimental.UtilityClass;
 import lombok.extern.slf4j.Slf4j;
-import org.slf4j.LoggerFactory;
+import org.slf4j.Logger;
 import org.slf4j.event.Level;
 import org.slf4j.spi.DefaultLoggingEventBuilder;
 
@@ -30,13 +30,12 @@ public class Logging {
   public static final String LOG_ATTRIBUTE_RESULT = "cqs.result";
 
   static void logAndThrow(
-      @NonNull ICommandHandler<?> handler,
+      @NonNull Logger logger,
       @NonNull String commandType,
       @NonNull String renderedCommand,
       @NonNull RuntimeException e)
       throws RuntimeException {
-    DefaultLoggingEventBuilder builder =
-        new DefaultLoggingEventBuilder(LoggerFactory.getLogger(handler.getClass()), Level.WARN);
+    DefaultLoggingEventBuilder builder = new DefaultLoggingEventBuilder(logger, Level.WARN);
     builder.setMessage("Failed to execute {} [{}].");
     builder.addArgument(commandType);
     builder.addArgument(e.getMessage());
@@ -47,12 +46,11 @@ public class Logging {
   }
 
   static void logSuccess(
-      @NonNull ICommandHandler<?> handler,
+      @NonNull Logger logger,
       @NonNull String commandType,
       @NonNull String renderedCommand,
       @Nullable Object result) {
-    DefaultLoggingEventBuilder builder =
-        new DefaultLoggingEventBuilder(LoggerFactory.getLogger(handler.getClass()), Level.INFO);
+    DefaultLoggingEventBuilder builder = new DefaultLoggingEventBuilder(logger, Level.INFO);
     builder.setMessage("Successfully executed {}.");
     builder.addArgument(commandType);
     builder.addKeyValue(LOG_ATTRIBUTE_COMMAND, renderedCommand);
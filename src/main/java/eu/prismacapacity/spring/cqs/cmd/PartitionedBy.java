@@ -0,0 +1,36 @@
+/*
+ * Copyright © 2026 PRISMA European Capacity Platform GmbH 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.prismacapacity.spring.cqs.cmd;
+
+import java.lang.annotation.*;
+
+/**
+ * Serializes the execution of commands of the annotated type that share the same value of the given
+ * field (typically the id of the aggregate they modify), while commands with different values still
+ * execute in parallel. Concurrent commands for the same aggregate then queue up instead of failing
+ * on optimistic locks and being retried.
+ *
+ * <p>Each attempt (validation, verification and handling) is serialized, backoff between retries is
+ * not. Asynchronous handlers are serialized until the returned future completes. Commands with a
+ * null value are not serialized.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE})
+@Inherited
+public @interface PartitionedBy {
+  /** Name of the field holding the partition key. */
+  String value();
+}
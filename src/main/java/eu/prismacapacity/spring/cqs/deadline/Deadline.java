@@ -0,0 +1,34 @@
+/*
+ * Copyright © 2026 PRISMA European Capacity Platform GmbH 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.prismacapacity.spring.cqs.deadline;
+
+import java.lang.annotation.*;
+
+/**
+ * Gives every invocation of a command or query handler a time budget, including retries and all
+ * nested command and query invocations. If the caller already established an earlier deadline (see
+ * {@link DeadlineContext}), that one applies instead.
+ *
+ * <p>Once the deadline has passed, orchestration fails fast with a QueryTimeoutException or
+ * CommandTimeoutException respectively before validating, verifying or handling.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE})
+@Inherited
+public @interface Deadline {
+  /** Time budget in milliseconds. */
+  long millis();
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright © 2026 PRISMA European Capacity Platform GmbH 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.prismacapacity.spring.cqs.deadline;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import lombok.NonNull;
+
+/**
+ * Holds the deadline of the current thread, as established by the orchestration of a handler
+ * annotated with {@link Deadline} or by the application itself, for example when receiving a
+ * request with a known timeout:
+ *
+ * <pre>
+ * try (DeadlineContext.Scope scope = DeadlineContext.within(2, TimeUnit.SECONDS)) {
+ *   return queryHandler.handle(query);
+ * }
+ * </pre>
+ */
+public final class DeadlineContext {
+  private static final ThreadLocal<Long> DEADLINE = new ThreadLocal<>();
+
+  private DeadlineContext() {}
+
+  /** Restores the previous deadline when closed. */
+  @FunctionalInterface
+  public interface Scope extends AutoCloseable {
+    /** leaves the deadline as it is */
+    Scope NONE = () -> {};
+
+    @Override
+    void close();
+  }
+
+  /**
+   * Establishes a deadline the given time from now, unless the current deadline is earlier.
+   *
+   * @return the scope to close once the deadline does not apply anymore
+   */
+  public static Scope within(long timeout, @NonNull TimeUnit unit) {
+    long deadline = System.nanoTime() + unit.toNanos(timeout);
+    Long current = DEADLINE.get();
+    if (current != null && current - deadline <= 0) {
+      return Scope.NONE;
+    }
+    return enter(deadline);
+  }
+
+  /**
+   * @return whether a deadline applies to the current thread
+   */
+  public static boolean isPresent() {
+    return DEADLINE.get() != null;
+  }
+
+  /**
+   * @return the nanoseconds until the deadline of the current thread, which is negative once it has
+   *     passed, or Long.MAX_VALUE if there is none
+   */
+  public static long remainingNanos() {
+    Long deadline = DEADLINE.get();
+    return deadline == null ? Long.MAX_VALUE : deadline - System.nanoTime();
+  }
+
+  /**
+   * @return whether the deadline of the current thread has passed
+   */
+  public static boolean isExpired() {
+    return remainingNanos() <= 0;
+  }
+
+  /**
+   * @return a callable that runs the given one with the deadline of the current thread, for handing
+   *     work over to another thread
+   */
+  public static <T> Callable<T> propagate(@NonNull Callable<T> callable) {
+    Long deadline = DEADLINE.get();
+    if (deadline == null) {
+      return callable;
+    }
+    return () -> {
+      try (Scope scope = enter(deadline)) {
+        return callable.call();
+      }
+    };
+  }
+
+  /**
+   * @return a runnable that runs the given one with the deadline of the current thread, for handing
+   *     work over to another thread
+   */
+  public static Runnable propagate(@NonNull Runnable runnable) {
+    Long deadline = DEADLINE.get();
+    if (deadline == null) {
+      return runnable;
+    }
+    return () -> {
+      try (Scope scope = enter(deadline)) {
+        runnable.run();
+      }
+    };
+  }
+
+  /**
+   * @return the deadline of the current thread (in terms of {@link System#nanoTime()}), null if
+   *     there is none, to be restored on another thread later on
+   */
+  public static Long capture() {
+    return DEADLINE.get();
+  }
+
+  /**
+   * Establishes a deadline captured before, replacing the one of the current thread (if any), so
+   * that work handed over to another thread neither loses its deadline nor picks up an unrelated
+   * one.
+   *
+   * @param deadline as returned by {@link #capture()}, null for none
+   * @return the scope to close once the deadline does not apply anymore
+   */
+  public static Scope restore(Long deadline) {
+    Long previous = DEADLINE.get();
+    if (deadline == null) {
+      DEADLINE.remove();
+    } else {
+      DEADLINE.set(deadline);
+    }
+    return () -> {
+      if (previous == null) {
+        DEADLINE.remove();
+      } else {
+        DEADLINE.set(previous);
+      }
+    };
+  }
+
+  private static Scope enter(long deadline) {
+    Long previous = DEADLINE.get();
+    DEADLINE.set(deadline);
+    return () -> {
+      if (previous == null) {
+        DEADLINE.remove();
+      } else {
+        DEADLINE.set(previous);
+      }
+    };
+  }
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright © 2026 PRISMA European Capacity Platform GmbH 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.prismacapacity.spring.cqs.limit;
+
+import java.lang.annotation.*;
+
+/**
+ * Limits the concurrent invocations of a command or query handler to a limit that adapts to the
+ * observed latency (see {@link VegasLimiter}). Invocations exceeding the current limit are rejected
+ * right away, which results in a CommandRejectedException or QueryRejectedException respectively.
+ *
+ * <p>Can be combined with {@link Bulkhead}, in which case both limits apply.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE})
+@Inherited
+public @interface AdaptiveLimit {
+  int initialLimit() default 20;
+
+  int minLimit() default 1;
+
+  int maxLimit() default 1000;
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright © 2026 PRISMA European Capacity Platform GmbH 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.prismacapacity.spring.cqs.limit;
+
+import java.lang.annotation.*;
+
+/**
+ * Limits how many invocations of a command or query handler may execute concurrently. Invocations
+ * exceeding the limit wait up to maxWaitMillis for a slot and are rejected afterwards, which
+ * results in a CommandRejectedException or QueryRejectedException respectively.
+ *
+ * <p>Validation and verification happen before a slot is acquired.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE})
+@Inherited
+public @interface Bulkhead {
+  /** Maximum number of concurrently executing invocations. */
+  int maxConcurrent();
+
+  /** How long an invocation may wait for a slot, 0 to reject right away. */
+  long maxWaitMillis() default 0;
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright © 2026 PRISMA European Capacity Platform GmbH 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.prismacapacity.spring.cqs.limit;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import lombok.NonNull;
+import lombok.experimental.UtilityClass;
+
+@UtilityClass
+public class LimitUtils {
+
+  /**
+   * @return the present limiters, in the given order
+   */
+  @SafeVarargs
+  public List<Limiter> present(@NonNull Optional<? extends Limiter>... limiters) {
+    List<Limiter> result = new ArrayList<>(limiters.length);
+    for (Optional<? extends Limiter> limiter : limiters) {
+      limiter.ifPresent(result::add);
+    }
+    return Collections.unmodifiableList(result);
+  }
+
+  /**
+   * Acquires a permit of every limiter, in order.
+   *
+   * @return a permit releasing all of them, or null if one of the limiters rejected (in which case
+   *     the permits acquired so far are dropped)
+   */
+  public Limiter.Permit tryAcquireAll(@NonNull List<Limiter> limiters) throws InterruptedException {
+    if (limiters.size() == 1) {
+      return limiters.get(0).tryAcquire();
+    }
+    List<Limiter.Permit> permits = new ArrayList<>(limiters.size());
+    try {
+      for (Limiter limiter : limiters) {
+        Limiter.Permit permit = limiter.tryAcquire();
+        if (permit == null) {
+          permits.forEach(Limiter.Permit::drop);
+          return null;
+        }
+        permits.add(permit);
+      }
+    } catch (InterruptedException | RuntimeException e) {
+      permits.forEach(Limiter.Permit::drop);
+      throw e;
+    }
+    return new Limiter.Permit() {
+      @Override
+      public void release() {
+        permits.forEach(Limiter.Permit::release);
+      }
+
+      @Override
+      public void drop() {
+        permits.forEach(Limiter.Permit::drop);
+      }
+    };
+  }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright © 2026 PRISMA European Capacity Platform GmbH 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.prismacapacity.spring.cqs.limit;
+
+/** Decides whether another invocation of a handler may execute right now. */
+public interface Limiter {
+
+  /**
+   * @return a permit that must be released once the invocation is done, or null if the invocation
+   *     is rejected
+   */
+  Permit tryAcquire() throws InterruptedException;
+
+  interface Permit {
+    /** releases the permit of an invocation that executed successfully */
+    void release();
+
+    /**
+     * Releases the permit without taking the invocation into account when adapting the limit, as it
+     * did not execute (for example because another limiter rejected it) or failed, so that its
+     * latency says nothing about the load.
+     */
+    default void drop() {
+      release();
+    }
+  }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright © 2026 PRISMA European Capacity Platform GmbH 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.prismacapacity.spring.cqs.limit;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.NonNull;
+
+/** A fixed limit of concurrent invocations, as configured by {@link Bulkhead}. */
+public final class SemaphoreBulkhead implements Limiter {
+  private final Semaphore slots;
+  private final int maxConcurrent;
+  private final long maxWaitMillis;
+  private final AtomicInteger queued = new AtomicInteger();
+  private final Permit permit = this::release;
+
+  public SemaphoreBulkhead(int maxConcurrent, long maxWaitMillis) {
+    if (maxConcurrent < 1) throw new IllegalArgumentException("maxConcurrent must be positive");
+    this.slots = new Semaphore(maxConcurrent, true);
+    this.maxConcurrent = maxConcurrent;
+    this.maxWaitMillis = Math.max(0, maxWaitMillis);
+  }
+
+  public static SemaphoreBulkhead of(@NonNull Bulkhead config) {
+    return new SemaphoreBulkhead(config.maxConcurrent(), config.maxWaitMillis());
+  }
+
+  @Override
+  public Permit tryAcquire() throws InterruptedException {
+    if (slots.tryAcquire()) {
+      return permit;
+    }
+    if (maxWaitMillis == 0) {
+      return null;
+    }
+    queued.incrementAndGet();
+    try {
+      return slots.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS) ? permit : null;
+    } finally {
+      queued.decrementAndGet();
+    }
+  }
+
+  private void release() {
+    slots.release();
+  }
+
+  /**
+   * @return the number of invocations currently executing
+   */
+  public int getInFlight() {
+    return maxConcurrent - slots.availablePermits();
+  }
+
+  /**
+   * @return the number of invocations currently waiting for a slot
+   */
+  public int getQueued() {
+    return queued.get();
+  }
+}
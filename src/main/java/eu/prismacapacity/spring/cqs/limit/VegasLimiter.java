@@ -0,0 +1,138 @@
+/*
+ * Copyright © 2026 PRISMA European Capacity Platform GmbH 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.prismacapacity.spring.cqs.limit;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+import lombok.NonNull;
+
+/**
+ * Adapts the limit of concurrent invocations in the spirit of TCP Vegas: the lowest latency seen is
+ * taken as the latency without load, and the ratio between it and the latency of an invocation
+ * estimates how many invocations are queueing somewhere downstream. The limit grows while that
+ * estimate is small and shrinks once it is large.
+ *
+ * <p>In order to notice when the latency without load changes, it is measured anew every now and
+ * then.
+ */
+public final class VegasLimiter implements Limiter {
+  private static final int PROBE_MULTIPLIER = 30;
+
+  private final int minLimit;
+  private final int maxLimit;
+  private final LongSupplier clock;
+  private final AtomicInteger inFlight = new AtomicInteger();
+
+  private volatile int limit;
+
+  /** guarded by this */
+  private long noLoadNanos;
+
+  /** guarded by this */
+  private long samplesUntilProbe;
+
+  public VegasLimiter(int initialLimit, int minLimit, int maxLimit) {
+    this(initialLimit, minLimit, maxLimit, System::nanoTime);
+  }
+
+  VegasLimiter(int initialLimit, int minLimit, int maxLimit, @NonNull LongSupplier clock) {
+    if (minLimit < 1 || minLimit > maxLimit) {
+      throw new IllegalArgumentException("limits must satisfy 1 <= minLimit <= maxLimit");
+    }
+    this.minLimit = minLimit;
+    this.maxLimit = maxLimit;
+    this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    this.samplesUntilProbe = (long) PROBE_MULTIPLIER * limit;
+    this.clock = clock;
+  }
+
+  public static VegasLimiter of(@NonNull AdaptiveLimit config) {
+    return new VegasLimiter(config.initialLimit(), config.minLimit(), config.maxLimit());
+  }
+
+  @Override
+  public Permit tryAcquire() {
+    int current = inFlight.incrementAndGet();
+    if (current > limit) {
+      inFlight.decrementAndGet();
+      return null;
+    }
+    long start = clock.getAsLong();
+    return new Permit() {
+      @Override
+      public void release() {
+        inFlight.decrementAndGet();
+        onSample(clock.getAsLong() - start, current);
+      }
+
+      @Override
+      public void drop() {
+        inFlight.decrementAndGet();
+      }
+    };
+  }
+
+  synchronized void onSample(long nanos, int inFlightAtStart) {
+    if (nanos <= 0) {
+      return;
+    }
+    if (--samplesUntilProbe <= 0) {
+      noLoadNanos = 0;
+      samplesUntilProbe = (long) PROBE_MULTIPLIER * limit;
+    }
+    if (noLoadNanos == 0 || nanos < noLoadNanos) {
+      noLoadNanos = nanos;
+      return;
+    }
+    // the limit is not what kept us from doing more, so there is nothing to learn
+    if (inFlightAtStart * 2 < limit) {
+      return;
+    }
+
+    int current = limit;
+    double log = Math.max(1, Math.log10(current));
+    double queued = Math.ceil(current * (1 - (double) noLoadNanos / nanos));
+
+    // small limits could otherwise never queue enough to be decreased
+    double tooMany = Math.max(1, Math.min(6 * log, current / 2.0));
+
+    double next;
+    if (queued > tooMany) {
+      next = current - log;
+    } else if (queued <= log) {
+      next = current + 6 * log;
+    } else if (queued < 3 * log) {
+      next = current + log;
+    } else {
+      return;
+    }
+    limit = (int) Math.max(minLimit, Math.min(maxLimit, next));
+  }
+
+  /**
+   * @return the number of invocations currently allowed to execute concurrently
+   */
+  public int getLimit() {
+    return limit;
+  }
+
+  /**
+   * @return the number of invocations currently executing
+   */
+  public int getInFlight() {
+    return inFlight.get();
+  }
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright © 2020-2022 PRISMA European Capacity Platform GmbH 
+ * Copyright © 2020-2026 PRISMA European Capacity Platform GmbH 
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -15,8 +15,18 @@
  */
 package eu.prismacapacity.spring.cqs.metrics;
 
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Supplier;
 
-public interface CommandMetrics {
+public interface CommandMetrics extends HandlerMetrics {
   <T> T timedCommand(String commandHandlerClass, int retryCount, Supplier<T> fn);
+
+  /**
+   * Times an asynchronous command execution until the future returned by fn completes. The default
+   * implementation can only time the call of fn.
+   */
+  default <T> CompletableFuture<T> timedCommandAsync(
+      String commandHandlerClass, int retryCount, Supplier<CompletableFuture<T>> fn) {
+    return timedCommand(commandHandlerClass, retryCount, fn);
+  }
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright © 2020-2022 PRISMA European Capacity Platform GmbH 
+ * Copyright © 2020-2026 PRISMA European Capacity Platform GmbH 
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -15,27 +15,168 @@
  */
 package eu.prismacapacity.spring.cqs.metrics;
 
+import eu.prismacapacity.spring.cqs.HandlerActivity;
+import eu.prismacapacity.spring.cqs.retry.RetryBudget;
+import eu.prismacapacity.spring.cqs.retry.RetryObserver;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Tag;
 import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.IntSupplier;
 import java.util.function.Supplier;
 import lombok.NonNull;
+import org.springframework.core.env.PropertyResolver;
 
 public class CqsMetrics implements CommandMetrics, QueryMetrics {
+  /** counter for the cache of query handlers, tagged with the result (hit, miss, eviction) */
+  public static final String QUERY_CACHE_METRIC_NAME = "queryHandler.cache";
+
+  /** counter for queries that shared the outcome of an equal query in flight */
+  public static final String QUERY_COALESCED_METRIC_NAME = "queryHandler.coalesced";
+
+  /** distribution of the sizes of batches dispatched to batch query handlers */
+  public static final String QUERY_BATCH_SIZE_METRIC_NAME = "queryHandler.batch.size";
+
+  /** timer for the time queries waited for their batch to be dispatched */
+  public static final String QUERY_BATCH_WAIT_METRIC_NAME = "queryHandler.batch.wait";
+
+  /** counter for hedges, tagged with the result (fired, won) */
+  public static final String QUERY_HEDGE_METRIC_NAME = "queryHandler.hedge";
+
+  /** gauge for the invocations of a handler in flight */
+  public static final String IN_FLIGHT_METRIC_NAME = "handler.inFlight";
+
+  /** gauge for the invocations of a handler completed per second, over a sliding window */
+  public static final String THROUGHPUT_METRIC_NAME = "handler.throughput";
+
+  /** gauge for the executing invocations of a handler with a bulkhead */
+  public static final String BULKHEAD_IN_FLIGHT_METRIC_NAME = "handler.bulkhead.inFlight";
+
+  /** gauge for the invocations waiting for a slot of a handler's bulkhead */
+  public static final String BULKHEAD_QUEUED_METRIC_NAME = "handler.bulkhead.queued";
+
+  /** gauge for the current concurrency limit of a handler with an adaptive limit */
+  public static final String LIMIT_METRIC_NAME = "handler.limit";
+
+  /** counter for invocations rejected because of a concurrency limit */
+  public static final String REJECTED_METRIC_NAME = "handler.rejected";
+
+  /** counter for retries skipped because the retry budget was exhausted */
+  public static final String RETRY_BUDGET_EXHAUSTED_METRIC_NAME = "handler.retry.budget.exhausted";
+
+  /** gauge for the number of retries a retry budget currently allows */
+  public static final String RETRY_BUDGET_BALANCE_METRIC_NAME = "handler.retry.budget.balance";
+
+  /** distribution of the number of attempts per invocation of a handler with retries */
+  public static final String RETRY_ATTEMPTS_METRIC_NAME = "handler.retry.attempts";
+
+  /** timer for the total time an invocation waited between its attempts */
+  public static final String RETRY_BACKOFF_METRIC_NAME = "handler.retry.backoff";
+
+  /** counter for invocations that failed after running out of attempts or retry budget */
+  public static final String RETRY_EXHAUSTED_METRIC_NAME = "handler.retry.exhausted";
+
+  /** counter for invocations that failed with an exception that is not retried (notRetryOn) */
+  public static final String RETRY_SKIPPED_METRIC_NAME = "handler.retry.skipped";
+
+  /** timer for the phases of invocations, tagged with the phase (see {@link Phase}) */
+  public static final String PHASE_METRIC_NAME = "handler.phase";
+
+  /** counter for invocations of command handlers, tagged with the outcome (see {@link Outcome}) */
+  public static final String COMMAND_OUTCOME_METRIC_NAME = "commandHandler.outcome";
+
+  /** counter for invocations of query handlers, tagged with the outcome (see {@link Outcome}) */
+  public static final String QUERY_OUTCOME_METRIC_NAME = "queryHandler.outcome";
+
+  /** timer for the time that elapsed before a query timed out */
+  public static final String QUERY_TIMEOUT_ELAPSED_METRIC_NAME = "queryHandler.timeout.elapsed";
+
   private final MeterRegistry meterRegistry;
   private final String queryHandlerTimerMetricName;
   private final String queryHandlerTimeoutMetricName;
   private final String commandHandlerTimerMetricName;
+  private final HandlerMeters queryMeters;
+  private final HandlerMeters commandMeters;
+  private final boolean phaseTimingEnabled;
+  private final Map<String, Timer[]> phaseTimers = new ConcurrentHashMap<>();
+  private final Map<String, Counter> timeoutCounters = new ConcurrentHashMap<>();
+  private final Map<String, Timer> timeoutTimers = new ConcurrentHashMap<>();
+  private final Map<String, HandlerSlo> slos = new ConcurrentHashMap<>();
+  private final Map<String, RetryMeters> retryMeters = new ConcurrentHashMap<>();
+  private final Map<String, CacheCounters> cacheCounters = new ConcurrentHashMap<>();
+  private final Map<String, Counter> coalescedCounters = new ConcurrentHashMap<>();
+  private final Map<String, DistributionSummary> batchSizes = new ConcurrentHashMap<>();
+  private final Map<String, Timer> batchWaitTimers = new ConcurrentHashMap<>();
+  private final Map<String, HedgeCounters> hedgeCounters = new ConcurrentHashMap<>();
+  private final Map<String, Counter> rejectedCounters = new ConcurrentHashMap<>();
+
+  /** overrides the service level objectives of handlers, may be null */
+  private final PropertyResolver sloProperties;
 
   public CqsMetrics(
       @NonNull MeterRegistry meterRegistry,
       @NonNull String queryHandlerTimerMetricName,
       @NonNull String queryHandlerTimeoutMetricName,
       @NonNull String commandHandlerTimerMetricName) {
+    this(
+        meterRegistry,
+        queryHandlerTimerMetricName,
+        queryHandlerTimeoutMetricName,
+        commandHandlerTimerMetricName,
+        false);
+  }
+
+  /**
+   * @param phaseTimingEnabled whether to time the phases of invocations (see {@link Phase})
+   */
+  public CqsMetrics(
+      @NonNull MeterRegistry meterRegistry,
+      @NonNull String queryHandlerTimerMetricName,
+      @NonNull String queryHandlerTimeoutMetricName,
+      @NonNull String commandHandlerTimerMetricName,
+      boolean phaseTimingEnabled) {
+    this(
+        meterRegistry,
+        queryHandlerTimerMetricName,
+        queryHandlerTimeoutMetricName,
+        commandHandlerTimerMetricName,
+        phaseTimingEnabled,
+        null);
+  }
+
+  /**
+   * @param phaseTimingEnabled whether to time the phases of invocations (see {@link Phase})
+   * @param sloProperties resolves the {@code cqs.metrics.slo.<handler-class>.*} properties
+   *     overriding the {@link HandlerSlo} of handlers, may be null
+   */
+  public CqsMetrics(
+      @NonNull MeterRegistry meterRegistry,
+      @NonNull String queryHandlerTimerMetricName,
+      @NonNull String queryHandlerTimeoutMetricName,
+      @NonNull String commandHandlerTimerMetricName,
+      boolean phaseTimingEnabled,
+      PropertyResolver sloProperties) {
+    this.sloProperties = sloProperties;
     this.meterRegistry = meterRegistry;
     this.queryHandlerTimerMetricName = queryHandlerTimerMetricName;
     this.queryHandlerTimeoutMetricName = queryHandlerTimeoutMetricName;
     this.commandHandlerTimerMetricName = commandHandlerTimerMetricName;
+    this.queryMeters =
+        new HandlerMeters(
+            meterRegistry, queryHandlerTimerMetricName, QUERY_OUTCOME_METRIC_NAME, this::sloOf);
+    this.commandMeters =
+        new HandlerMeters(
+            meterRegistry, commandHandlerTimerMetricName, COMMAND_OUTCOME_METRIC_NAME, this::sloOf);
+    this.phaseTimingEnabled = phaseTimingEnabled;
 
     meterRegistry.timer(queryHandlerTimerMetricName);
     meterRegistry.counter(queryHandlerTimeoutMetricName);
@@ -45,29 +186,318 @@ public class CqsMetrics implements CommandMetrics, QueryMetrics {
   @Override
   public <T> T timedCommand(
       @NonNull String commandHandlerClass, int retryCount, @NonNull Supplier<T> fn) {
-    return meterRegistry
-        .timer(
-            commandHandlerTimerMetricName,
-            Tags.of(
-                Tag.of("class", commandHandlerClass),
-                Tag.of("retryCount", String.valueOf(retryCount))))
-        .record(fn);
+    return timed(commandMeters, commandHandlerClass, retryCount, fn);
+  }
+
+  @Override
+  public <T> CompletableFuture<T> timedCommandAsync(
+      @NonNull String commandHandlerClass,
+      int retryCount,
+      @NonNull Supplier<CompletableFuture<T>> fn) {
+    return timedAsync(commandMeters, commandHandlerClass, retryCount, fn);
+  }
+
+  @Override
+  public <T> CompletableFuture<T> timedQueryAsync(
+      @NonNull String queryHandlerClass,
+      int retryCount,
+      @NonNull Supplier<CompletableFuture<T>> fn) {
+    return timedAsync(queryMeters, queryHandlerClass, retryCount, fn);
+  }
+
+  private static <T> T timed(
+      HandlerMeters meters, String handlerClass, int retryCount, Supplier<T> fn) {
+    long start = System.nanoTime();
+    try {
+      T result = fn.get();
+      meters.record(handlerClass, retryCount, Outcome.SUCCESS, System.nanoTime() - start);
+      return result;
+    } catch (Throwable e) {
+      meters.record(handlerClass, retryCount, Outcome.of(e), System.nanoTime() - start);
+      throw e;
+    }
+  }
+
+  private static <T> CompletableFuture<T> timedAsync(
+      HandlerMeters meters,
+      String handlerClass,
+      int retryCount,
+      Supplier<CompletableFuture<T>> fn) {
+    long start = System.nanoTime();
+    CompletableFuture<T> future;
+    try {
+      future = fn.get();
+    } catch (Throwable e) {
+      meters.record(handlerClass, retryCount, Outcome.of(e), System.nanoTime() - start);
+      throw e;
+    }
+    future.whenComplete(
+        (r, e) ->
+            meters.record(handlerClass, retryCount, Outcome.of(e), System.nanoTime() - start));
+    return future;
   }
 
   @Override
   public <T> T timedQuery(
       @NonNull String queryHandlerClass, int retryCount, @NonNull Supplier<T> fn) {
-    return meterRegistry
-        .timer(
-            queryHandlerTimerMetricName,
-            Tags.of(
-                Tag.of("class", queryHandlerClass),
-                Tag.of("retryCount", String.valueOf(retryCount))))
-        .record(fn);
+    return timed(queryMeters, queryHandlerClass, retryCount, fn);
   }
 
   @Override
   public void logTimeout() {
     meterRegistry.counter(queryHandlerTimeoutMetricName).increment();
   }
+
+  @Override
+  public void logTimeout(@NonNull String queryHandlerClass) {
+    timeoutCounter(queryHandlerClass).increment();
+  }
+
+  @Override
+  public void logTimeout(@NonNull String queryHandlerClass, long elapsedNanos) {
+    timeoutCounter(queryHandlerClass).increment();
+    Timer timer = timeoutTimers.get(queryHandlerClass);
+    if (timer == null) {
+      timer =
+          timeoutTimers.computeIfAbsent(
+              queryHandlerClass,
+              c ->
+                  meterRegistry.timer(
+                      QUERY_TIMEOUT_ELAPSED_METRIC_NAME, Tags.of(Tag.of("class", c))));
+    }
+    timer.record(elapsedNanos, TimeUnit.NANOSECONDS);
+  }
+
+  private Counter timeoutCounter(String queryHandlerClass) {
+    Counter counter = timeoutCounters.get(queryHandlerClass);
+    if (counter == null) {
+      counter =
+          timeoutCounters.computeIfAbsent(
+              queryHandlerClass,
+              c ->
+                  meterRegistry.counter(
+                      queryHandlerTimeoutMetricName, Tags.of(Tag.of("class", c))));
+    }
+    return counter;
+  }
+
+  @Override
+  public void logCacheHit(@NonNull String queryHandlerClass) {
+    cached(cacheCounters, queryHandlerClass, CacheCounters::new).hit.increment();
+  }
+
+  @Override
+  public void logCacheMiss(@NonNull String queryHandlerClass) {
+    cached(cacheCounters, queryHandlerClass, CacheCounters::new).miss.increment();
+  }
+
+  @Override
+  public void logCacheEvictions(@NonNull String queryHandlerClass, int count) {
+    cached(cacheCounters, queryHandlerClass, CacheCounters::new).eviction.increment(count);
+  }
+
+  @Override
+  public void logCoalesced(@NonNull String queryHandlerClass) {
+    cached(
+            coalescedCounters,
+            queryHandlerClass,
+            c -> meterRegistry.counter(QUERY_COALESCED_METRIC_NAME, Tags.of(Tag.of("class", c))))
+        .increment();
+  }
+
+  @Override
+  public void logBatch(@NonNull String queryHandlerClass, int size) {
+    cached(
+            batchSizes,
+            queryHandlerClass,
+            c -> meterRegistry.summary(QUERY_BATCH_SIZE_METRIC_NAME, Tags.of(Tag.of("class", c))))
+        .record(size);
+  }
+
+  @Override
+  public void logBatchWait(@NonNull String queryHandlerClass, long nanos) {
+    cached(
+            batchWaitTimers,
+            queryHandlerClass,
+            c -> meterRegistry.timer(QUERY_BATCH_WAIT_METRIC_NAME, Tags.of(Tag.of("class", c))))
+        .record(nanos, TimeUnit.NANOSECONDS);
+  }
+
+  @Override
+  public void logHedge(@NonNull String queryHandlerClass) {
+    cached(hedgeCounters, queryHandlerClass, HedgeCounters::new).fired.increment();
+  }
+
+  @Override
+  public void logHedgeWon(@NonNull String queryHandlerClass) {
+    cached(hedgeCounters, queryHandlerClass, HedgeCounters::new).won.increment();
+  }
+
+  private final class HedgeCounters {
+    private final Counter fired;
+    private final Counter won;
+
+    HedgeCounters(String queryHandlerClass) {
+      fired = hedgeCounter(queryHandlerClass, "fired");
+      won = hedgeCounter(queryHandlerClass, "won");
+    }
+
+    private Counter hedgeCounter(String queryHandlerClass, String result) {
+      return meterRegistry.counter(
+          QUERY_HEDGE_METRIC_NAME,
+          Tags.of(Tag.of("class", queryHandlerClass), Tag.of("result", result)));
+    }
+  }
+
+  @Override
+  public void registerBulkhead(
+      @NonNull String handlerClass, @NonNull IntSupplier inFlight, @NonNull IntSupplier queued) {
+    Tags tags = Tags.of(Tag.of("class", handlerClass));
+    Gauge.builder(BULKHEAD_IN_FLIGHT_METRIC_NAME, inFlight, IntSupplier::getAsInt)
+        .tags(tags)
+        .strongReference(true)
+        .register(meterRegistry);
+    Gauge.builder(BULKHEAD_QUEUED_METRIC_NAME, queued, IntSupplier::getAsInt)
+        .tags(tags)
+        .strongReference(true)
+        .register(meterRegistry);
+  }
+
+  @Override
+  public void registerActivity(@NonNull String handlerClass, @NonNull HandlerActivity activity) {
+    Tags tags = Tags.of(Tag.of("class", handlerClass));
+    Gauge.builder(IN_FLIGHT_METRIC_NAME, activity, HandlerActivity::getInFlight)
+        .tags(tags)
+        .strongReference(true)
+        .register(meterRegistry);
+    Gauge.builder(THROUGHPUT_METRIC_NAME, activity, HandlerActivity::getThroughput)
+        .tags(tags)
+        .strongReference(true)
+        .register(meterRegistry);
+  }
+
+  @Override
+  public void registerSlo(@NonNull String handlerClass, @NonNull HandlerSlo slo) {
+    slos.put(handlerClass, slo);
+  }
+
+  private SloSettings sloOf(String handlerClass) {
+    return SloSettings.resolve(handlerClass, slos.get(handlerClass), sloProperties);
+  }
+
+  @Override
+  public void registerLimit(@NonNull String handlerClass, @NonNull IntSupplier limit) {
+    Gauge.builder(LIMIT_METRIC_NAME, limit, IntSupplier::getAsInt)
+        .tags(Tags.of(Tag.of("class", handlerClass)))
+        .strongReference(true)
+        .register(meterRegistry);
+  }
+
+  @Override
+  public void registerRetryBudget(@NonNull String handlerClass, @NonNull RetryBudget budget) {
+    Tags tags = Tags.of(Tag.of("class", handlerClass));
+    FunctionCounter.builder(RETRY_BUDGET_EXHAUSTED_METRIC_NAME, budget, RetryBudget::getExhausted)
+        .tags(tags)
+        .register(meterRegistry);
+    Gauge.builder(RETRY_BUDGET_BALANCE_METRIC_NAME, budget, RetryBudget::getBalance)
+        .tags(tags)
+        .strongReference(true)
+        .register(meterRegistry);
+  }
+
+  @Override
+  public void logRetries(
+      @NonNull String handlerClass,
+      int attempts,
+      long backOffNanos,
+      @NonNull RetryObserver.Outcome outcome) {
+    RetryMeters meters = cached(retryMeters, handlerClass, RetryMeters::new);
+    meters.attempts.record(attempts);
+    meters.backOff.record(backOffNanos, TimeUnit.NANOSECONDS);
+    Counter counter = meters.outcomes[outcome.ordinal()];
+    if (counter != null) {
+      counter.increment();
+    }
+  }
+
+  /** looks up the meters of a handler class, creating them on first use */
+  private static <M> M cached(
+      Map<String, M> cache, String handlerClass, Function<String, M> create) {
+    M meters = cache.get(handlerClass);
+    if (meters == null) {
+      meters = cache.computeIfAbsent(handlerClass, create);
+    }
+    return meters;
+  }
+
+  private final class RetryMeters {
+    private final DistributionSummary attempts;
+    private final Timer backOff;
+
+    /** counters by outcome, null for outcomes that are not counted */
+    private final Counter[] outcomes = new Counter[RetryObserver.Outcome.values().length];
+
+    RetryMeters(String handlerClass) {
+      Tags tags = Tags.of(Tag.of("class", handlerClass));
+      attempts = meterRegistry.summary(RETRY_ATTEMPTS_METRIC_NAME, tags);
+      backOff = meterRegistry.timer(RETRY_BACKOFF_METRIC_NAME, tags);
+      outcomes[RetryObserver.Outcome.EXHAUSTED.ordinal()] =
+          meterRegistry.counter(RETRY_EXHAUSTED_METRIC_NAME, tags);
+      outcomes[RetryObserver.Outcome.NOT_RETRYABLE.ordinal()] =
+          meterRegistry.counter(RETRY_SKIPPED_METRIC_NAME, tags);
+    }
+  }
+
+  @Override
+  public boolean isPhaseTimingEnabled() {
+    return phaseTimingEnabled;
+  }
+
+  @Override
+  public void logPhase(@NonNull String handlerClass, @NonNull Phase phase, long nanos) {
+    Timer[] timers = phaseTimers.get(handlerClass);
+    if (timers == null) {
+      timers = phaseTimers.computeIfAbsent(handlerClass, this::createPhaseTimers);
+    }
+    timers[phase.ordinal()].record(nanos, TimeUnit.NANOSECONDS);
+  }
+
+  private Timer[] createPhaseTimers(String handlerClass) {
+    Phase[] phases = Phase.values();
+    Timer[] timers = new Timer[phases.length];
+    for (Phase phase : phases) {
+      timers[phase.ordinal()] =
+          meterRegistry.timer(
+              PHASE_METRIC_NAME,
+              Tags.of(Tag.of("class", handlerClass), Tag.of("phase", phase.getTag())));
+    }
+    return timers;
+  }
+
+  @Override
+  public void logRejected(@NonNull String handlerClass) {
+    cached(
+            rejectedCounters,
+            handlerClass,
+            c -> meterRegistry.counter(REJECTED_METRIC_NAME, Tags.of(Tag.of("class", c))))
+        .increment();
+  }
+
+  private final class CacheCounters {
+    private final Counter hit;
+    private final Counter miss;
+    private final Counter eviction;
+
+    CacheCounters(String queryHandlerClass) {
+      hit = cacheCounter(queryHandlerClass, "hit");
+      miss = cacheCounter(queryHandlerClass, "miss");
+      eviction = cacheCounter(queryHandlerClass, "eviction");
+    }
+
+    private Counter cacheCounter(String queryHandlerClass, String result) {
+      return meterRegistry.counter(
+          QUERY_CACHE_METRIC_NAME,
+          Tags.of(Tag.of("class", queryHandlerClass), Tag.of("result", result)));
+    }
+  }
 }
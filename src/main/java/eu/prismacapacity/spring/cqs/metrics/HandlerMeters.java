@@ -0,0 +1,115 @@
+/*
+ * Copyright © 2026 PRISMA European Capacity Platform GmbH 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.prismacapacity.spring.cqs.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+import lombok.NonNull;
+
+/**
+ * Caches the timers of a handler metric by class, retry count and outcome, and the counters by
+ * class and outcome, so that recording an invocation neither allocates tags nor looks up meters in
+ * the registry once they have been used. The timers of a class publish the distribution statistics
+ * configured for it (see {@link HandlerSlo}) when they are created.
+ */
+final class HandlerMeters {
+  /** timers for higher retry counts are looked up in the registry on every invocation */
+  static final int CACHED_RETRY_COUNTS = 16;
+
+  private static final Outcome[] OUTCOMES = Outcome.values();
+
+  private final MeterRegistry meterRegistry;
+  private final String timerName;
+  private final String counterName;
+
+  /** distribution statistics of the timers by class, null for the registry's defaults */
+  private final Function<String, SloSettings> slos;
+
+  private final Map<String, ByClass> byClass = new ConcurrentHashMap<>();
+
+  HandlerMeters(
+      @NonNull MeterRegistry meterRegistry,
+      @NonNull String timerName,
+      @NonNull String counterName,
+      @NonNull Function<String, SloSettings> slos) {
+    this.meterRegistry = meterRegistry;
+    this.timerName = timerName;
+    this.counterName = counterName;
+    this.slos = slos;
+  }
+
+  void record(@NonNull String handlerClass, int retryCount, Outcome outcome, long nanos) {
+    ByClass meters = byClass.get(handlerClass);
+    if (meters == null) {
+      meters = byClass.computeIfAbsent(handlerClass, ByClass::new);
+    }
+    meters.timer(retryCount, outcome).record(nanos, TimeUnit.NANOSECONDS);
+    meters.counters[outcome.ordinal()].increment();
+  }
+
+  private final class ByClass {
+    private final String handlerClass;
+    private final SloSettings slo;
+    private final AtomicReferenceArray<Timer> timers =
+        new AtomicReferenceArray<>(CACHED_RETRY_COUNTS * OUTCOMES.length);
+    private final Counter[] counters = new Counter[OUTCOMES.length];
+
+    ByClass(String handlerClass) {
+      this.handlerClass = handlerClass;
+      this.slo = slos.apply(handlerClass);
+      for (Outcome outcome : OUTCOMES) {
+        counters[outcome.ordinal()] =
+            meterRegistry.counter(
+                counterName,
+                Tags.of(Tag.of("class", handlerClass), Tag.of("outcome", outcome.getTag())));
+      }
+    }
+
+    Timer timer(int retryCount, Outcome outcome) {
+      if (retryCount < 0 || retryCount >= CACHED_RETRY_COUNTS) {
+        return lookup(retryCount, outcome);
+      }
+      int index = retryCount * OUTCOMES.length + outcome.ordinal();
+      Timer timer = timers.get(index);
+      if (timer == null) {
+        // the registry returns the same timer when racing, so there is no need to synchronize
+        timer = lookup(retryCount, outcome);
+        timers.set(index, timer);
+      }
+      return timer;
+    }
+
+    private Timer lookup(int retryCount, Outcome outcome) {
+      Tags tags =
+          Tags.of(
+              Tag.of("class", handlerClass),
+              Tag.of("retryCount", String.valueOf(retryCount)),
+              Tag.of("outcome", outcome.getTag()));
+      if (slo == null) {
+        return meterRegistry.timer(timerName, tags);
+      }
+      return slo.applyTo(Timer.builder(timerName).tags(tags)).register(meterRegistry);
+    }
+  }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright © 2026 PRISMA European Capacity Platform GmbH 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.prismacapacity.spring.cqs.metrics;
+
+import eu.prismacapacity.spring.cqs.HandlerActivity;
+import eu.prismacapacity.spring.cqs.retry.RetryBudget;
+import eu.prismacapacity.spring.cqs.retry.RetryObserver;
+import java.util.function.IntSupplier;
+
+/** Metrics shared by command and query handlers. All of them are optional. */
+public interface HandlerMetrics {
+
+  /** Registers gauges for the executing and waiting invocations of a handler with a bulkhead. */
+  default void registerBulkhead(String handlerClass, IntSupplier inFlight, IntSupplier queued) {}
+
+  /** Registers gauges for the invocations of a handler in flight and their throughput. */
+  default void registerActivity(String handlerClass, HandlerActivity activity) {}
+
+  /**
+   * Registers the service level objective a handler is annotated with, before its first invocation
+   * is recorded.
+   */
+  default void registerSlo(String handlerClass, HandlerSlo slo) {}
+
+  /** Registers a gauge for the current limit of a handler with an adaptive limit. */
+  default void registerLimit(String handlerClass, IntSupplier limit) {}
+
+  /**
+   * Registers meters for the retries skipped because the given budget (of a handler, or the global
+   * one if handlerClass is "global") was exhausted, and for its balance.
+   */
+  default void registerRetryBudget(String handlerClass, RetryBudget budget) {}
+
+  /**
+   * Records the attempts of an invocation of a handler with a retry configuration, once it
+   * completed.
+   *
+   * @param backOffNanos total time spent waiting between the attempts
+   */
+  default void logRetries(
+      String handlerClass, int attempts, long backOffNanos, RetryObserver.Outcome outcome) {}
+
+  /**
+   * @return whether the aspects are to measure the phases of invocations and report them to {@link
+   *     #logPhase}, which costs reading the clock twice per phase
+   */
+  default boolean isPhaseTimingEnabled() {
+    return false;
+  }
+
+  /** Records the time a phase of an invocation took, if phase timing is enabled. */
+  default void logPhase(String handlerClass, Phase phase, long nanos) {}
+
+  /** Counts an invocation of a handler that was rejected because of its concurrency limit. */
+  default void logRejected(String handlerClass) {}
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright © 2026 PRISMA European Capacity Platform GmbH 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.prismacapacity.spring.cqs.metrics;
+
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+import lombok.NonNull;
+
+/**
+ * Opens a Micrometer {@link Observation} per attempt of an orchestrated invocation, so that the
+ * handlers registered with the {@link ObservationRegistry} (for example tracing) see commands and
+ * queries as well. Observations have the low cardinality key values {@code class}, {@code
+ * retryCount} and {@code outcome} like the handler timers, and commands additionally the high
+ * cardinality key value {@code cqs.command.rendered} with their LogString. The observations are
+ * named apart from the handler timers, so that a meter observation handler does not publish timers
+ * clashing with them.
+ *
+ * <p>If the registry is a no-op one, the invocation is run as is, without allocating anything.
+ */
+public final class HandlerObservations {
+  /** name of the observations of command handler invocations */
+  public static final String COMMAND_OBSERVATION_NAME = "cqs.command.invocation";
+
+  /** name of the observations of query handler invocations */
+  public static final String QUERY_OBSERVATION_NAME = "cqs.query.invocation";
+
+  /** high cardinality key of the rendered command */
+  public static final String COMMAND_KEY = "cqs.command.rendered";
+
+  public static final HandlerObservations NONE = new HandlerObservations(ObservationRegistry.NOOP);
+
+  private final ObservationRegistry registry;
+
+  public HandlerObservations(@NonNull ObservationRegistry registry) {
+    this.registry = registry;
+  }
+
+  /**
+   * @param registry may be null, in which case nothing is observed
+   */
+  public static HandlerObservations of(ObservationRegistry registry) {
+    return registry == null || registry.isNoop() ? NONE : new HandlerObservations(registry);
+  }
+
+  /**
+   * @return whether invocations are observed, so that callers can skip preparing key values
+   */
+  public boolean isEnabled() {
+    return !registry.isNoop();
+  }
+
+  /**
+   * @param renderedCommand the LogString of the command, null for queries
+   */
+  public <T> T observe(
+      @NonNull String name,
+      @NonNull String handlerClass,
+      int retryCount,
+      String renderedCommand,
+      @NonNull Supplier<T> fn) {
+    if (registry.isNoop()) {
+      return fn.get();
+    }
+    Observation observation = start(name, handlerClass, retryCount, renderedCommand);
+    try (Observation.Scope scope = observation.openScope()) {
+      T result = fn.get();
+      stop(observation, null);
+      return result;
+    } catch (Throwable e) {
+      stop(observation, e);
+      throw e;
+    }
+  }
+
+  /**
+   * Like {@link #observe}, but stops the observation once the returned future completes.
+   *
+   * @param renderedCommand the LogString of the command, null for queries
+   */
+  public <T> CompletableFuture<T> observeAsync(
+      @NonNull String name,
+      @NonNull String handlerClass,
+      int retryCount,
+      String renderedCommand,
+      @NonNull Supplier<CompletableFuture<T>> fn) {
+    if (registry.isNoop()) {
+      return fn.get();
+    }
+    Observation observation = start(name, handlerClass, retryCount, renderedCommand);
+    CompletableFuture<T> future;
+    try (Observation.Scope scope = observation.openScope()) {
+      future = fn.get();
+    } catch (Throwable e) {
+      stop(observation, e);
+      throw e;
+    }
+    future.whenComplete((r, e) -> stop(observation, e));
+    return future;
+  }
+
+  private Observation start(
+      String name, String handlerClass, int retryCount, String renderedCommand) {
+    Observation observation =
+        Observation.createNotStarted(name, registry)
+            .lowCardinalityKeyValue("class", handlerClass)
+            .lowCardinalityKeyValue("retryCount", String.valueOf(retryCount));
+    if (renderedCommand != null) {
+      observation.highCardinalityKeyValue(COMMAND_KEY, renderedCommand);
+    }
+    return observation.start();
+  }
+
+  private static void stop(Observation observation, Throwable e) {
+    observation.lowCardinalityKeyValue("outcome", Outcome.of(e).getTag());
+    if (e != null) {
+      observation.error(
+          e instanceof CompletionException && e.getCause() != null ? e.getCause() : e);
+    }
+    observation.stop();
+  }
+}
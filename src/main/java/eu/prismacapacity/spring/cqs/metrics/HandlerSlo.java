@@ -0,0 +1,42 @@
+/*
+ * Copyright © 2026 PRISMA European Capacity Platform GmbH 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.prismacapacity.spring.cqs.metrics;
+
+import java.lang.annotation.*;
+
+/**
+ * Publishes the distribution statistics needed to alert on the service level objective of a command
+ * or query handler with its timer. Timers of other handlers keep the registry's defaults, so only
+ * handlers with an objective pay for the additional series.
+ *
+ * <p>Each attribute can be overridden by the properties {@code
+ * cqs.metrics.slo.<handler-class>.percentiles}, {@code .buckets}, {@code .percentile-histogram} and
+ * {@code .expiry}, which also configure handlers without this annotation. The configuration is
+ * applied when the timers of the handler are first created.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE})
+@Inherited
+public @interface HandlerSlo {
+  /**
+   * The 99th percentile objective, 0 if none. Publishes the 99th percentile and a bucket for the
+   * objective, which counts the invocations meeting it.
+   */
+  long p99Millis() default 0;
+
+  /** Additional bucket boundaries in milliseconds, for example other objectives. */
+  long[] buckets() default {};
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright © 2026 PRISMA European Capacity Platform GmbH 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.prismacapacity.spring.cqs.metrics;
+
+import eu.prismacapacity.spring.cqs.cmd.CommandRejectedException;
+import eu.prismacapacity.spring.cqs.cmd.CommandTimeoutException;
+import eu.prismacapacity.spring.cqs.cmd.CommandValidationException;
+import eu.prismacapacity.spring.cqs.cmd.CommandVerificationException;
+import eu.prismacapacity.spring.cqs.query.QueryRejectedException;
+import eu.prismacapacity.spring.cqs.query.QueryTimeoutException;
+import eu.prismacapacity.spring.cqs.query.QueryValidationException;
+import eu.prismacapacity.spring.cqs.query.QueryVerificationException;
+import java.util.Locale;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+
+/** How an orchestrated invocation ended, used to tag the handler timers. */
+public enum Outcome {
+  SUCCESS,
+  VALIDATION_FAILED,
+  VERIFICATION_FAILED,
+  HANDLING_FAILED,
+  TIMEOUT,
+  REJECTED,
+  /** the caller lost interest, for example by cancelling the subscription to a reactive query */
+  CANCELLED;
+
+  private final String tag = name().toLowerCase(Locale.ROOT);
+
+  /**
+   * @return the value to tag metrics with
+   */
+  public String getTag() {
+    return tag;
+  }
+
+  /**
+   * @param e the exception the invocation failed with, null if it succeeded
+   */
+  public static Outcome of(Throwable e) {
+    if (e == null) {
+      return SUCCESS;
+    }
+    if (e instanceof CompletionException && e.getCause() != null) {
+      e = e.getCause();
+    }
+    if (e instanceof CommandValidationException || e instanceof QueryValidationException) {
+      return VALIDATION_FAILED;
+    }
+    if (e instanceof CommandVerificationException || e instanceof QueryVerificationException) {
+      return VERIFICATION_FAILED;
+    }
+    if (e instanceof CommandTimeoutException || e instanceof QueryTimeoutException) {
+      return TIMEOUT;
+    }
+    if (e instanceof CommandRejectedException || e instanceof QueryRejectedException) {
+      return REJECTED;
+    }
+    if (e instanceof CancellationException) {
+      return CANCELLED;
+    }
+    return HANDLING_FAILED;
+  }
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright © 2026 PRISMA European Capacity Platform GmbH 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.prismacapacity.spring.cqs.metrics;
+
+import java.util.Locale;
+
+/** Phases of an orchestrated invocation, see {@link HandlerMetrics#logPhase}. */
+public enum Phase {
+  /** bean validation and the handler's validate method */
+  VALIDATION,
+  /** the handler's verify method */
+  VERIFICATION,
+  /** the handler's handle method (until the returned future completes, if asynchronous) */
+  EXECUTION,
+  /** rendering the command for logging */
+  RENDERING,
+  /** logging the outcome of a command */
+  LOGGING;
+
+  private final String tag = name().toLowerCase(Locale.ROOT);
+
+  /**
+   * @return the value to tag metrics with
+   */
+  public String getTag() {
+    return tag;
+  }
+}
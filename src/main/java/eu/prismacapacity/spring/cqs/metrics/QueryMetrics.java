@@ -1,5 +1,5 @@
 /*
- * Copyright © 2020-2022 PRISMA European Capacity Platform GmbH 
+ * Copyright © 2020-2026 PRISMA European Capacity Platform GmbH 
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -15,10 +15,57 @@
  */
 package eu.prismacapacity.spring.cqs.metrics;
 
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Supplier;
 
-public interface QueryMetrics {
+public interface QueryMetrics extends HandlerMetrics {
   <T> T timedQuery(String queryHandlerClass, int retryCount, Supplier<T> fn);
 
+  /**
+   * Times an asynchronous query execution until the future returned by fn completes. The default
+   * implementation can only time the call of fn.
+   */
+  default <T> CompletableFuture<T> timedQueryAsync(
+      String queryHandlerClass, int retryCount, Supplier<CompletableFuture<T>> fn) {
+    return timedQuery(queryHandlerClass, retryCount, fn);
+  }
+
   void logTimeout();
+
+  /** Counts a timeout of the given handler. Defaults to {@link #logTimeout()}. */
+  default void logTimeout(String queryHandlerClass) {
+    logTimeout();
+  }
+
+  /**
+   * Records a timeout of the given handler, along with the time that elapsed before it. Defaults to
+   * {@link #logTimeout(String)}.
+   */
+  default void logTimeout(String queryHandlerClass, long elapsedNanos) {
+    logTimeout(queryHandlerClass);
+  }
+
+  /** Counts a query answered from the cache of a handler annotated with CachedQuery. */
+  default void logCacheHit(String queryHandlerClass) {}
+
+  /** Counts a query that was not found in the cache of a handler annotated with CachedQuery. */
+  default void logCacheMiss(String queryHandlerClass) {}
+
+  /** Counts results evicted from the cache of a handler in order to stay within its maxSize. */
+  default void logCacheEvictions(String queryHandlerClass, int count) {}
+
+  /** Counts a query that shared the outcome of an equal query already in flight. */
+  default void logCoalesced(String queryHandlerClass) {}
+
+  /** Records the size of a batch dispatched to a BatchQueryHandler. */
+  default void logBatch(String queryHandlerClass, int size) {}
+
+  /** Records how long a query waited for its batch to be dispatched. */
+  default void logBatchWait(String queryHandlerClass, long nanos) {}
+
+  /** Counts an additional invocation started for a slow query of a HedgedQuery handler. */
+  default void logHedge(String queryHandlerClass) {}
+
+  /** Counts a query of a HedgedQuery handler answered by an additional invocation. */
+  default void logHedgeWon(String queryHandlerClass) {}
 }
@@ -0,0 +1,100 @@
+/*
+ * Copyright © 2026 PRISMA European Capacity Platform GmbH 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.prismacapacity.spring.cqs.metrics;
+
+import io.micrometer.core.instrument.Timer;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.stream.LongStream;
+import lombok.NonNull;
+import lombok.Value;
+import org.springframework.core.env.PropertyResolver;
+
+/**
+ * The distribution statistics a handler's timers publish, from its {@link HandlerSlo} annotation
+ * and the properties overriding it.
+ */
+@Value
+class SloSettings {
+  static final String PREFIX = "cqs.metrics.slo.";
+
+  /** client-side percentiles, between 0 and 1 */
+  double[] percentiles;
+
+  /** boundaries of the buckets to publish */
+  long[] bucketMillis;
+
+  boolean percentileHistogram;
+
+  /** how long samples are kept for the percentiles and max, null for the registry's default */
+  Duration expiry;
+
+  /**
+   * @param slo annotation of the handler, may be null
+   * @param properties properties overriding the annotation, may be null
+   * @return null if neither configures anything, so that the registry's defaults apply
+   */
+  static SloSettings resolve(
+      @NonNull String handlerClass, HandlerSlo slo, PropertyResolver properties) {
+    double[] percentiles = new double[0];
+    long[] bucketMillis = new long[0];
+    if (slo != null) {
+      if (slo.p99Millis() > 0) {
+        percentiles = new double[] {0.99};
+        bucketMillis = new long[] {slo.p99Millis()};
+      }
+      bucketMillis =
+          LongStream.concat(LongStream.of(bucketMillis), LongStream.of(slo.buckets()))
+              .distinct()
+              .sorted()
+              .toArray();
+    }
+    boolean percentileHistogram = false;
+    Duration expiry = null;
+    if (properties != null) {
+      String prefix = PREFIX + handlerClass + ".";
+      percentiles = properties.getProperty(prefix + "percentiles", double[].class, percentiles);
+      bucketMillis = properties.getProperty(prefix + "buckets", long[].class, bucketMillis);
+      percentileHistogram =
+          properties.getProperty(prefix + "percentile-histogram", Boolean.class, false);
+      expiry = properties.getProperty(prefix + "expiry", Duration.class);
+    }
+    if (percentiles.length == 0
+        && bucketMillis.length == 0
+        && !percentileHistogram
+        && expiry == null) {
+      return null;
+    }
+    return new SloSettings(percentiles, bucketMillis, percentileHistogram, expiry);
+  }
+
+  Timer.Builder applyTo(@NonNull Timer.Builder builder) {
+    if (percentileHistogram) {
+      builder.publishPercentileHistogram();
+    }
+    if (percentiles.length > 0) {
+      builder.publishPercentiles(percentiles);
+    }
+    if (bucketMillis.length > 0) {
+      builder.serviceLevelObjectives(
+          Arrays.stream(bucketMillis).mapToObj(Duration::ofMillis).toArray(Duration[]::new));
+    }
+    if (expiry != null) {
+      builder.distributionStatisticExpiry(expiry);
+    }
+    return builder;
+  }
+}
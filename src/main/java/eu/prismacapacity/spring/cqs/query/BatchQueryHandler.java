@@ -0,0 +1,50 @@
+/*
+ * Copyright © 2026 PRISMA European Capacity Platform GmbH 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.prismacapacity.spring.cqs.query;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import lombok.NonNull;
+
+/**
+ * Query handler that is able to answer many queries at once. Calls of handle through the
+ * orchestration are collected for a short window (see {@link BatchedQuery}) and answered by a
+ * single call of handleAll, while every caller still gets validated, verified and answered
+ * individually.
+ *
+ * <p>handle is only called when the handler is invoked without orchestration, so it would typically
+ * delegate to handleAll.
+ */
+public interface BatchQueryHandler<Q extends Query, T> extends QueryHandler<Q, T> {
+
+  /**
+   * @param queries distinct queries (by equals/hashCode) collected within the window
+   * @return the result for each query; a missing result fails the respective caller
+   */
+  @NonNull
+  Map<Q, T> handleAll(@NonNull Collection<Q> queries) throws QueryHandlingException;
+
+  @Override
+  @NonNull
+  default T handle(@NonNull Q query) throws QueryHandlingException {
+    T result = handleAll(Collections.singletonList(query)).get(query);
+    if (result == null) {
+      throw new QueryHandlingException("Returned object must not be null");
+    }
+    return result;
+  }
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright © 2026 PRISMA European Capacity Platform GmbH 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.prismacapacity.spring.cqs.query;
+
+import java.lang.annotation.*;
+
+/**
+ * Configures how calls of a {@link BatchQueryHandler} are collected. Handlers without this
+ * annotation use the defaults.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE})
+@Inherited
+public @interface BatchedQuery {
+  /** How long queries are collected after the first one arrived. */
+  long windowMillis() default 5;
+
+  /** Dispatches the batch right away once it holds this many queries. */
+  int maxBatchSize() default 100;
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright © 2026 PRISMA European Capacity Platform GmbH 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.prismacapacity.spring.cqs.query;
+
+import java.lang.annotation.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caches the results of a {@link QueryHandler}, keyed by the query (so its equals/hashCode must be
+ * based on its values). The cache is consulted after validation and verification, so that a cached
+ * result is never returned for a query that would be rejected. Results are cached for a fixed time
+ * after they were computed and the least recently used ones are evicted once maxSize is reached.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE})
+@Inherited
+public @interface CachedQuery {
+  /** How long a result is cached after it was computed. */
+  long ttl();
+
+  TimeUnit unit() default TimeUnit.MILLISECONDS;
+
+  /** Maximum number of cached results per handler. */
+  int maxSize() default 1000;
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright © 2026 PRISMA European Capacity Platform GmbH 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.prismacapacity.spring.cqs.query;
+
+import java.lang.annotation.*;
+
+/**
+ * Hedges invocations of a {@link QueryHandler}: if handle has not returned after the given
+ * percentile of its recently observed latencies, another invocation is started in parallel. The
+ * first one to complete wins and the others are cancelled. Only use this for idempotent,
+ * side-effect free queries.
+ *
+ * <p>The invocations are executed on separate (virtual, if available) threads, so thread bound
+ * state of the caller (like the current transaction) is not available within them. Until enough
+ * latencies were observed, invocations are not hedged.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE})
+@Inherited
+public @interface HedgedQuery {
+  /** Percentile of the observed latencies after which another invocation is started. */
+  double afterPercentile() default 95;
+
+  /** Maximum number of additional invocations per query. */
+  int maxHedges() default 1;
+}
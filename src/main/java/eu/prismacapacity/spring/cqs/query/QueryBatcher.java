@@ -0,0 +1,151 @@
+/*
+ * Copyright © 2026 PRISMA European Capacity Platform GmbH 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.prismacapacity.spring.cqs.query;
+
+import eu.prismacapacity.spring.cqs.CqsExecutors;
+import eu.prismacapacity.spring.cqs.deadline.DeadlineContext;
+import eu.prismacapacity.spring.cqs.metrics.QueryMetrics;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Collects single queries for a {@link BatchQueryHandler} and dispatches them as one batch, either
+ * when the window of the batch has passed or when it is full. A full batch is dispatched on the
+ * thread of the caller completing it, an expired one on a thread of {@link CqsExecutors}.
+ */
+@RequiredArgsConstructor
+@SuppressWarnings({"unchecked", "rawtypes"})
+final class QueryBatcher {
+  @NonNull private final String name;
+  private final long windowMillis;
+  private final int maxBatchSize;
+
+  /** the batch currently collecting queries, guarded by this */
+  private Batch current;
+
+  static QueryBatcher of(@NonNull Class<?> handlerClass) {
+    BatchedQuery config = handlerClass.getAnnotation(BatchedQuery.class);
+    return config == null
+        ? new QueryBatcher(handlerClass.getName(), 5, 100)
+        : new QueryBatcher(handlerClass.getName(), config.windowMillis(), config.maxBatchSize());
+  }
+
+  /**
+   * adds the query to the current batch and waits for its result, no longer than the deadline of
+   * the current thread (see {@link DeadlineContext}) allows
+   */
+  Object load(
+      @NonNull BatchQueryHandler target, @NonNull Object query, @NonNull QueryMetrics metrics)
+      throws Throwable {
+    Pending pending = new Pending(query, System.nanoTime());
+    Batch foreign = null;
+    Batch opened = null;
+    Batch full = null;
+    synchronized (this) {
+      if (current != null && current.target != target) {
+        foreign = current;
+        current = null;
+      }
+      if (current == null) {
+        current = opened = new Batch(target);
+      }
+      current.pending.add(pending);
+      if (current.pending.size() >= maxBatchSize) {
+        full = current;
+        current = null;
+      }
+    }
+
+    if (foreign != null) {
+      Batch batch = foreign;
+      CqsExecutors.executor().execute(() -> dispatch(batch, metrics));
+    }
+    if (full != null) {
+      dispatch(full, metrics);
+    } else if (opened != null) {
+      Batch batch = opened;
+      CqsExecutors.schedule(() -> expire(batch, metrics), windowMillis);
+    }
+
+    try {
+      if (!DeadlineContext.isPresent()) {
+        return pending.result.get();
+      }
+      return pending.result.get(DeadlineContext.remainingNanos(), TimeUnit.NANOSECONDS);
+    } catch (TimeoutException e) {
+      throw new QueryTimeoutException(
+          new TimeoutException("Deadline exceeded while waiting for the batch"));
+    } catch (ExecutionException e) {
+      throw e.getCause();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw e;
+    }
+  }
+
+  private void expire(Batch batch, QueryMetrics metrics) {
+    synchronized (this) {
+      if (current != batch) {
+        // already dispatched because it was full
+        return;
+      }
+      current = null;
+    }
+    dispatch(batch, metrics);
+  }
+
+  private void dispatch(Batch batch, QueryMetrics metrics) {
+    long now = System.nanoTime();
+    metrics.logBatch(name, batch.pending.size());
+    LinkedHashSet<Object> queries = new LinkedHashSet<>();
+    for (Pending p : batch.pending) {
+      metrics.logBatchWait(name, now - p.enqueuedAt);
+      queries.add(p.query);
+    }
+
+    try {
+      Map<Object, Object> results = batch.target.handleAll(queries);
+      for (Pending p : batch.pending) {
+        p.result.complete(results == null ? null : results.get(p.query));
+      }
+    } catch (Throwable e) {
+      for (Pending p : batch.pending) {
+        p.result.completeExceptionally(e);
+      }
+    }
+  }
+
+  @RequiredArgsConstructor
+  private static final class Batch {
+    final BatchQueryHandler target;
+    final List<Pending> pending = new ArrayList<>();
+  }
+
+  @RequiredArgsConstructor
+  private static final class Pending {
+    final Object query;
+    final long enqueuedAt;
+    final CompletableFuture<Object> result = new CompletableFuture<>();
+  }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright © 2026 PRISMA European Capacity Platform GmbH 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.prismacapacity.spring.cqs.query;
+
+import eu.prismacapacity.spring.cqs.CqsExecutors;
+import eu.prismacapacity.spring.cqs.deadline.DeadlineContext;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.concurrent.Future;
+import lombok.experimental.UtilityClass;
+
+/** Runs query handlers off the calling thread on the {@link CqsExecutors}. */
+@UtilityClass
+class QueryExecutors {
+
+  /** runs the invocation with the deadline of the calling thread */
+  Future<Object> submit(QueryHandlerOrchestrationAspect.Invocation invocation) {
+    return CqsExecutors.submit(
+        DeadlineContext.propagate(
+            () -> {
+              try {
+                return invocation.proceed();
+              } catch (Exception | Error e) {
+                throw e;
+              } catch (Throwable e) {
+                throw new UndeclaredThrowableException(e);
+              }
+            }));
+  }
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright © 2020 PRISMA European Capacity Platform GmbH
+ * Copyright © 2020-2026 PRISMA European Capacity Platform GmbH 
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,16 +17,9 @@ package eu.prismacapacity.spring.cqs.query;
 
 import lombok.NonNull;
 
-/**
- * Query handler returning T
- */
-public interface QueryHandler<Q extends Query, T> {
-	default void validate(@NonNull Q query) throws QueryValidationException {
-	}
-
-	void verify(@NonNull Q query) throws QueryVerificationException;
-
-	@NonNull
-	T handle(@NonNull Q query) throws QueryHandlingException, QueryTimeoutException;
+/** Query handler returning T */
+public interface QueryHandler<Q extends Query, T> extends IQueryHandler<Q> {
 
+  @NonNull
+  T handle(@NonNull Q query) throws QueryHandlingException, QueryTimeoutException;
 }
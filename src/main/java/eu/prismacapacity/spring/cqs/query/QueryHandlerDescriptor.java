@@ -0,0 +1,112 @@
+/*
+ * Copyright © 2026 PRISMA European Capacity Platform GmbH 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.prismacapacity.spring.cqs.query;
+
+import eu.prismacapacity.spring.cqs.HandlerActivity;
+import eu.prismacapacity.spring.cqs.cache.ExpiringLruCache;
+import eu.prismacapacity.spring.cqs.deadline.Deadline;
+import eu.prismacapacity.spring.cqs.limit.*;
+import eu.prismacapacity.spring.cqs.retry.RetryBudget;
+import eu.prismacapacity.spring.cqs.retry.RetryUtils;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.NonNull;
+import lombok.Value;
+import org.springframework.core.retry.RetryTemplate;
+
+/**
+ * Everything the orchestration needs to know about a handler class. It is derived once per class
+ * and cached by the aspect, so that the hot path does not need to inspect the handler again.
+ */
+@Value
+class QueryHandlerDescriptor {
+
+  @NonNull Class<?> handlerClass;
+
+  /** used to tag metrics */
+  @NonNull String name;
+
+  @NonNull Optional<RetryTemplate> retryTemplate;
+
+  /** enforced time budget of the handle method, 0 if none */
+  long timeoutMillis;
+
+  /** results of the handler, if annotated with {@link CachedQuery} */
+  @NonNull Optional<ExpiringLruCache<Object, Object>> cache;
+
+  /** executions in flight by query, if annotated with {@link SingleFlight} */
+  @NonNull Optional<Map<Object, CompletableFuture<Object>>> inFlight;
+
+  /** collects calls into batches, if the handler is a {@link BatchQueryHandler} */
+  @NonNull Optional<QueryBatcher> batcher;
+
+  /** starts parallel invocations for slow ones, if annotated with {@link HedgedQuery} */
+  @NonNull Optional<QueryHedging> hedging;
+
+  /** time budget of an invocation including nested ones, 0 if none (see {@link Deadline}) */
+  long deadlineMillis;
+
+  /** limits concurrent invocations, if annotated with {@link Bulkhead} */
+  @NonNull Optional<SemaphoreBulkhead> bulkhead;
+
+  /** adapts the limit of concurrent invocations, if annotated with {@link AdaptiveLimit} */
+  @NonNull Optional<VegasLimiter> adaptiveLimiter;
+
+  /** all limits that apply, in the order their permits are acquired */
+  @NonNull List<Limiter> limiters;
+
+  /** invocations in flight and throughput */
+  @NonNull HandlerActivity activity;
+
+  static QueryHandlerDescriptor of(@NonNull Class<?> handlerClass) {
+    return of(handlerClass, null);
+  }
+
+  /**
+   * @param globalRetryBudget limits retries in addition to the handler's own budget, null if none
+   */
+  static QueryHandlerDescriptor of(@NonNull Class<?> handlerClass, RetryBudget globalRetryBudget) {
+    QueryTimeout timeout = handlerClass.getAnnotation(QueryTimeout.class);
+    Deadline deadline = handlerClass.getAnnotation(Deadline.class);
+    Optional<SemaphoreBulkhead> bulkhead =
+        Optional.ofNullable(handlerClass.getAnnotation(Bulkhead.class)).map(SemaphoreBulkhead::of);
+    Optional<VegasLimiter> adaptiveLimiter =
+        Optional.ofNullable(handlerClass.getAnnotation(AdaptiveLimit.class)).map(VegasLimiter::of);
+    return new QueryHandlerDescriptor(
+        handlerClass,
+        handlerClass.getName(),
+        RetryUtils.retryTemplateFor(handlerClass, globalRetryBudget),
+        timeout == null ? 0 : timeout.millis(),
+        Optional.ofNullable(handlerClass.getAnnotation(CachedQuery.class))
+            .map(c -> new ExpiringLruCache<>(c.maxSize(), c.unit().toNanos(c.ttl()))),
+        handlerClass.isAnnotationPresent(SingleFlight.class)
+            ? Optional.of(new ConcurrentHashMap<>())
+            : Optional.empty(),
+        BatchQueryHandler.class.isAssignableFrom(handlerClass)
+            ? Optional.of(QueryBatcher.of(handlerClass))
+            : Optional.empty(),
+        Optional.ofNullable(handlerClass.getAnnotation(HedgedQuery.class)).map(QueryHedging::of),
+        deadline == null ? 0 : deadline.millis(),
+        bulkhead,
+        adaptiveLimiter,
+        // the adaptive limit rejects right away, so check it before waiting for the bulkhead
+        LimitUtils.present(adaptiveLimiter, bulkhead),
+        new HandlerActivity());
+  }
+}
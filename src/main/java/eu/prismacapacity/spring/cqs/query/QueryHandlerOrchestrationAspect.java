@@ -1,5 +1,5 @@
 /*
- * Copyright © 2020-2023 PRISMA European Capacity Platform GmbH 
+ * Copyright © 2020-2026 PRISMA European Capacity Platform GmbH 
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -15,13 +15,31 @@
  */
 package eu.prismacapacity.spring.cqs.query;
 
+import eu.prismacapacity.spring.cqs.BeanValidation;
+import eu.prismacapacity.spring.cqs.deadline.DeadlineContext;
+import eu.prismacapacity.spring.cqs.limit.LimitUtils;
+import eu.prismacapacity.spring.cqs.limit.Limiter;
+import eu.prismacapacity.spring.cqs.metrics.HandlerObservations;
+import eu.prismacapacity.spring.cqs.metrics.HandlerSlo;
+import eu.prismacapacity.spring.cqs.metrics.Phase;
 import eu.prismacapacity.spring.cqs.metrics.QueryMetrics;
+import eu.prismacapacity.spring.cqs.retry.RetryBudget;
 import eu.prismacapacity.spring.cqs.retry.RetryUtils;
+import io.micrometer.observation.ObservationRegistry;
 import jakarta.validation.ConstraintViolation;
 import jakarta.validation.Validator;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
-import lombok.RequiredArgsConstructor;
+import lombok.NonNull;
+import lombok.Value;
 import lombok.val;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
@@ -34,69 +52,492 @@ import org.aspectj.lang.annotation.Aspect;
  */
 @Aspect
 @SuppressWarnings("unchecked")
-@RequiredArgsConstructor
 public final class QueryHandlerOrchestrationAspect {
   protected final Validator validator;
 
   protected final QueryMetrics metrics;
 
+  private final HandlerObservations observations;
+
+  /** limits the retries of all handlers in addition to their own budgets, if any */
+  private final RetryBudget globalRetryBudget;
+
+  private final Map<Class<?>, QueryHandlerDescriptor> descriptors = new ConcurrentHashMap<>();
+
+  private final BeanValidation beanValidation = new BeanValidation();
+
+  public QueryHandlerOrchestrationAspect(
+      @NonNull Validator validator, @NonNull QueryMetrics metrics) {
+    this(validator, metrics, null);
+  }
+
+  /**
+   * @param observationRegistry observes every attempt of an invocation (see {@link
+   *     HandlerObservations}), null to not observe them
+   */
+  public QueryHandlerOrchestrationAspect(
+      @NonNull Validator validator,
+      @NonNull QueryMetrics metrics,
+      ObservationRegistry observationRegistry) {
+    this(validator, metrics, observationRegistry, null);
+  }
+
+  /**
+   * @param observationRegistry observes every attempt of an invocation (see {@link
+   *     HandlerObservations}), null to not observe them
+   * @param globalRetryBudget limits the retries of all handlers in addition to their own budgets,
+   *     null if none
+   */
+  public QueryHandlerOrchestrationAspect(
+      @NonNull Validator validator,
+      @NonNull QueryMetrics metrics,
+      ObservationRegistry observationRegistry,
+      RetryBudget globalRetryBudget) {
+    this.validator = validator;
+    this.metrics = metrics;
+    this.observations = HandlerObservations.of(observationRegistry);
+    this.globalRetryBudget = globalRetryBudget;
+  }
+
   @Around("execution(* eu.prismacapacity.spring.cqs.query.QueryHandler.handle(..))")
   public Object orchestrate(ProceedingJoinPoint joinPoint) throws Throwable {
-    val signature = joinPoint.getStaticPart().getSignature();
-    val clazz = signature.getDeclaringTypeName();
+    val target = (QueryHandler<Query, ?>) joinPoint.getTarget();
+    return orchestrate(
+        describe(target), target, (Query) joinPoint.getArgs()[0], joinPoint::proceed);
+  }
+
+  /**
+   * Runs the same orchestration as the aspect for a direct invocation of the given handler, without
+   * going through a proxy. The handler is expected to be the target object, not the proxy, as the
+   * orchestration would otherwise happen twice.
+   */
+  public <Q extends Query, T> T orchestrate(@NonNull QueryHandler<Q, T> handler, @NonNull Q query)
+      throws QueryHandlingException {
+    return (T)
+        orchestrate(
+            describe(handler),
+            (QueryHandler<Query, ?>) handler,
+            query,
+            () -> handler.handle(query));
+  }
+
+  private Object orchestrate(
+      QueryHandlerDescriptor descriptor,
+      QueryHandler<Query, ?> target,
+      Query query,
+      Invocation invocation) {
+    descriptor.getActivity().begin();
+    try (DeadlineContext.Scope scope = enterDeadline(descriptor.getDeadlineMillis())) {
+      return RetryUtils.withOptionalRetry(
+          descriptor.getRetryTemplate(),
+          (attempts, backOffNanos, outcome) ->
+              metrics.logRetries(descriptor.getName(), attempts, backOffNanos, outcome),
+          (count) ->
+              observations.observe(
+                  HandlerObservations.QUERY_OBSERVATION_NAME,
+                  descriptor.getName(),
+                  count,
+                  null,
+                  () ->
+                      metrics.timedQuery(
+                          descriptor.getName(),
+                          count,
+                          () -> process(descriptor, target, query, invocation))));
+    } finally {
+      descriptor.getActivity().end();
+    }
+  }
+
+  private static DeadlineContext.Scope enterDeadline(long deadlineMillis) {
+    return deadlineMillis > 0
+        ? DeadlineContext.within(deadlineMillis, TimeUnit.MILLISECONDS)
+        : DeadlineContext.Scope.NONE;
+  }
 
-    return RetryUtils.withOptionalRetry(
-        joinPoint.getTarget().getClass(),
-        (count) -> metrics.timedQuery(clazz, count, () -> process(joinPoint)));
+  QueryHandlerDescriptor describe(@NonNull Object target) {
+    Class<?> handlerClass = target.getClass();
+    QueryHandlerDescriptor descriptor = descriptors.get(handlerClass);
+    if (descriptor == null) {
+      descriptor = descriptors.computeIfAbsent(handlerClass, this::create);
+    }
+    return descriptor;
+  }
+
+  private QueryHandlerDescriptor create(Class<?> handlerClass) {
+    val descriptor = QueryHandlerDescriptor.of(handlerClass, globalRetryBudget);
+    descriptor
+        .getBulkhead()
+        .ifPresent(
+            b -> metrics.registerBulkhead(descriptor.getName(), b::getInFlight, b::getQueued));
+    descriptor
+        .getAdaptiveLimiter()
+        .ifPresent(l -> metrics.registerLimit(descriptor.getName(), l::getLimit));
+    RetryUtils.retryBudgetOf(descriptor.getRetryTemplate())
+        .ifPresent(b -> metrics.registerRetryBudget(descriptor.getName(), b));
+    metrics.registerActivity(descriptor.getName(), descriptor.getActivity());
+    Optional.ofNullable(handlerClass.getAnnotation(HandlerSlo.class))
+        .ifPresent(s -> metrics.registerSlo(descriptor.getName(), s));
+    return descriptor;
   }
 
   protected <Q extends Query> Object process(ProceedingJoinPoint joinPoint)
       throws QueryHandlingException {
+    val target = joinPoint.getTarget();
+    return process(
+        describe(target),
+        (QueryHandler<Q, ?>) target,
+        (Q) joinPoint.getArgs()[0],
+        joinPoint::proceed);
+  }
+
+  protected <Q extends Query> Object process(
+      QueryHandlerDescriptor descriptor, QueryHandler<Q, ?> target, Q cmd, Invocation invocation)
+      throws QueryHandlingException {
+
+    long start = System.nanoTime();
+    try {
+      validateAndVerify(validator, beanValidation, metrics, descriptor.getName(), target, cmd);
+    } catch (QueryTimeoutException e) {
+      metrics.logTimeout(descriptor.getName(), System.nanoTime() - start);
+      throw e;
+    }
 
-    Q cmd = (Q) joinPoint.getArgs()[0];
-    QueryHandler<Q, ?> target = (QueryHandler<Q, ?>) joinPoint.getTarget();
+    val cache = descriptor.getCache().orElse(null);
+    if (cache != null) {
+      val cached = cache.get(cmd);
+      if (cached != null) {
+        metrics.logCacheHit(descriptor.getName());
+        return cached;
+      }
+      metrics.logCacheMiss(descriptor.getName());
+    }
+
+    if (descriptor.getBatcher().isPresent()) {
+      val batcher = descriptor.getBatcher().get();
+      invocation = () -> batcher.load((BatchQueryHandler<?, ?>) target, cmd, metrics);
+    }
 
-    // validator based validate
-    Set<ConstraintViolation<Q>> violations = validator.validate(cmd);
-    if (!violations.isEmpty()) {
-      throw new QueryValidationException(violations);
+    val inFlight = descriptor.getInFlight().orElse(null);
+    val result =
+        inFlight == null
+            ? execute(descriptor, invocation, start)
+            : executeOnce(descriptor, inFlight, cmd, invocation, start);
+
+    if (cache != null) {
+      int evicted = cache.put(cmd, result);
+      if (evicted > 0) {
+        metrics.logCacheEvictions(descriptor.getName(), evicted);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Executes the handler, unless an execution for an equal query is already in flight, in which
+   * case the outcome of that one is shared.
+   */
+  private Object executeOnce(
+      QueryHandlerDescriptor descriptor,
+      Map<Object, CompletableFuture<Object>> inFlight,
+      Object query,
+      Invocation invocation,
+      long start)
+      throws QueryHandlingException {
+    val own = new CompletableFuture<Object>();
+    val leader = inFlight.putIfAbsent(query, own);
+    if (leader != null) {
+      metrics.logCoalesced(descriptor.getName());
+      return await(descriptor, leader, start);
     }
 
-    // custom validate
     try {
-      target.validate(cmd);
-    } catch (QueryValidationException e) {
-      throw e;
+      val result = execute(descriptor, invocation, start);
+      own.complete(result);
+      return result;
     } catch (Throwable e) {
-      throw new QueryValidationException(e);
+      // whatever the leader fails with, followers must not be left waiting
+      own.completeExceptionally(e);
+      throw e;
+    } finally {
+      inFlight.remove(query, own);
     }
+  }
 
-    // verification
+  /**
+   * Waits for the outcome of the leader, but no longer than the deadline of the follower allows.
+   */
+  private Object await(
+      QueryHandlerDescriptor descriptor, CompletableFuture<Object> leader, long start)
+      throws QueryHandlingException {
     try {
-      target.verify(cmd);
-    } catch (QueryVerificationException e) {
-      throw e;
-    } catch (Throwable e) {
-      throw new QueryVerificationException(e);
+      if (!DeadlineContext.isPresent()) {
+        return leader.get();
+      }
+      return leader.get(DeadlineContext.remainingNanos(), TimeUnit.NANOSECONDS);
+    } catch (TimeoutException e) {
+      metrics.logTimeout(descriptor.getName(), System.nanoTime() - start);
+      throw new QueryTimeoutException(
+          new TimeoutException("Deadline exceeded while waiting for an equal query in flight"));
+    } catch (ExecutionException e) {
+      val cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new QueryHandlingException(cause);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new QueryHandlingException(e);
     }
+  }
 
-    // execution
+  /**
+   * @param start of the invocation, to report the time elapsed before a timeout
+   */
+  private Object execute(QueryHandlerDescriptor descriptor, Invocation invocation, long start)
+      throws QueryHandlingException {
+    val permit = acquire(descriptor);
+    long executionStart = startPhase(metrics);
+    boolean succeeded = false;
     try {
-      val result = joinPoint.proceed();
+      failIfExpired("handling");
+      val hedging = descriptor.getHedging().orElse(null);
+      Invocation execution =
+          hedging == null ? invocation : () -> hedge(descriptor, hedging, invocation);
+      val result =
+          descriptor.getTimeoutMillis() > 0
+              ? proceedWithin(timeoutMillis(descriptor), execution)
+              : execution.proceed();
       if (result == null) {
         throw new QueryHandlingException("Returned object must not be null");
       }
+      succeeded = true;
       return result;
     } catch (TimeoutException e) {
-      metrics.logTimeout();
+      metrics.logTimeout(descriptor.getName(), System.nanoTime() - start);
       throw new QueryTimeoutException((TimeoutException) e);
     } catch (QueryTimeoutException e) {
-      metrics.logTimeout();
+      metrics.logTimeout(descriptor.getName(), System.nanoTime() - start);
       throw e;
     } catch (QueryHandlingException e) {
       throw e;
     } catch (Throwable e) {
       throw new QueryHandlingException(e);
+    } finally {
+      endPhase(metrics, descriptor.getName(), Phase.EXECUTION, executionStart);
+      if (permit != null) {
+        // only successful executions tell the adaptive limit something about the load
+        if (succeeded) {
+          permit.release();
+        } else {
+          permit.drop();
+        }
+      }
+    }
+  }
+
+  /**
+   * Runs the invocation and starts another one in parallel whenever the latest one did not complete
+   * within the observed percentile of latencies. The first to complete wins, and the invocation
+   * only fails once all started ones failed.
+   *
+   * <p>The latency of the first invocation is sampled even if it loses, with the time it ran so far
+   * (at least the delay) as a lower bound, so that the percentile is not biased towards the fast
+   * winners, which would lead to hedging ever more often.
+   */
+  private Object hedge(
+      QueryHandlerDescriptor descriptor, QueryHedging hedging, Invocation invocation)
+      throws Throwable {
+    long delay = hedging.getDelayNanos();
+    if (delay < 0) {
+      long start = System.nanoTime();
+      val result = invocation.proceed();
+      hedging.record(System.nanoTime() - start);
+      return result;
+    }
+
+    val hedges = new Hedges();
+    val attempts = new ArrayList<Future<Object>>(hedging.getMaxHedges() + 1);
+    long start = System.nanoTime();
+    try {
+      for (int i = 0; ; i++) {
+        attempts.add(startHedge(i, hedges, invocation));
+        try {
+          val hedge =
+              i < hedging.getMaxHedges()
+                  ? hedges.winner.get(delay, TimeUnit.NANOSECONDS)
+                  : hedges.winner.get();
+          if (hedge.getIndex() > 0) {
+            metrics.logHedgeWon(descriptor.getName());
+            hedging.record(Math.max(delay, System.nanoTime() - start));
+          } else {
+            hedging.record(System.nanoTime() - start);
+          }
+          return hedge.getResult();
+        } catch (TimeoutException e) {
+          metrics.logHedge(descriptor.getName());
+        } catch (ExecutionException e) {
+          throw e.getCause();
+        }
+      }
+    } finally {
+      attempts.forEach(f -> f.cancel(true));
+    }
+  }
+
+  private static Future<Object> startHedge(int index, Hedges hedges, Invocation invocation) {
+    hedges.started();
+    return QueryExecutors.submit(
+        () -> {
+          try {
+            hedges.winner.complete(new Hedge(index, invocation.proceed()));
+          } catch (Throwable e) {
+            hedges.failed(e);
+          }
+          return null;
+        });
+  }
+
+  /** the invocations of a hedged query, the first one succeeding completing the winner */
+  private static class Hedges {
+    final CompletableFuture<Hedge> winner = new CompletableFuture<>();
+
+    /** guarded by this */
+    private int running;
+
+    synchronized void started() {
+      running++;
+    }
+
+    synchronized void failed(Throwable e) {
+      if (--running == 0) {
+        winner.completeExceptionally(e);
+      }
+    }
+  }
+
+  @Value
+  private static class Hedge {
+    int index;
+    Object result;
+  }
+
+  /**
+   * @return the permit to release after execution, null if the handler has no limit
+   */
+  private Limiter.Permit acquire(QueryHandlerDescriptor descriptor) throws QueryRejectedException {
+    if (descriptor.getLimiters().isEmpty()) {
+      return null;
+    }
+    Limiter.Permit permit;
+    try {
+      permit = LimitUtils.tryAcquireAll(descriptor.getLimiters());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      permit = null;
+    }
+    if (permit == null) {
+      metrics.logRejected(descriptor.getName());
+      throw new QueryRejectedException(descriptor.getName() + " is at its concurrency limit");
+    }
+    return permit;
+  }
+
+  /**
+   * @param handlerName used to report the time of the phases, if enabled in the metrics
+   */
+  static <Q extends Query> void validateAndVerify(
+      Validator validator,
+      BeanValidation beanValidation,
+      QueryMetrics metrics,
+      String handlerName,
+      IQueryHandler<Q> target,
+      Q query)
+      throws QueryHandlingException {
+    failIfExpired("validation");
+
+    long validation = startPhase(metrics);
+    try {
+      // validator based validate
+      Set<ConstraintViolation<Q>> violations = beanValidation.validate(validator, query);
+      if (!violations.isEmpty()) {
+        throw new QueryValidationException(violations);
+      }
+
+      // custom validate
+      try {
+        target.validate(query);
+      } catch (QueryValidationException e) {
+        throw e;
+      } catch (Throwable e) {
+        throw new QueryValidationException(e);
+      }
+    } finally {
+      endPhase(metrics, handlerName, Phase.VALIDATION, validation);
+    }
+
+    failIfExpired("verification");
+
+    // verification
+    long verification = startPhase(metrics);
+    try {
+      target.verify(query);
+    } catch (QueryVerificationException e) {
+      throw e;
+    } catch (Throwable e) {
+      throw new QueryVerificationException(e);
+    } finally {
+      endPhase(metrics, handlerName, Phase.VERIFICATION, verification);
+    }
+  }
+
+  /**
+   * @return the start of a phase, 0 if phases are not timed
+   */
+  static long startPhase(QueryMetrics metrics) {
+    return metrics.isPhaseTimingEnabled() ? System.nanoTime() : 0;
+  }
+
+  static void endPhase(QueryMetrics metrics, String handlerName, Phase phase, long start) {
+    if (start != 0) {
+      metrics.logPhase(handlerName, phase, System.nanoTime() - start);
+    }
+  }
+
+  /** fails fast if the deadline of the current thread has passed */
+  static void failIfExpired(String phase) throws QueryTimeoutException {
+    if (DeadlineContext.isExpired()) {
+      throw new QueryTimeoutException(new TimeoutException("Deadline exceeded before " + phase));
     }
   }
+
+  /** the time budget of the handler, capped by the deadline of the current thread */
+  private static long timeoutMillis(QueryHandlerDescriptor descriptor) {
+    long remaining = TimeUnit.NANOSECONDS.toMillis(DeadlineContext.remainingNanos());
+    return Math.max(1, Math.min(descriptor.getTimeoutMillis(), remaining));
+  }
+
+  private static Object proceedWithin(long timeoutMillis, Invocation invocation) throws Throwable {
+    Future<Object> future = QueryExecutors.submit(invocation);
+    try {
+      return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+    } catch (ExecutionException e) {
+      throw e.getCause();
+    } catch (TimeoutException e) {
+      future.cancel(true);
+      throw new TimeoutException("Query did not complete within " + timeoutMillis + "ms");
+    } catch (InterruptedException e) {
+      future.cancel(true);
+      Thread.currentThread().interrupt();
+      throw e;
+    }
+  }
+
+  /** the actual call of the handle method, either through the join point or directly */
+  @FunctionalInterface
+  interface Invocation {
+    Object proceed() throws Throwable;
+  }
 }
@@ -0,0 +1,81 @@
+/*
+ * Copyright © 2026 PRISMA European Capacity Platform GmbH 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.prismacapacity.spring.cqs.query;
+
+import java.util.Arrays;
+import lombok.Getter;
+import lombok.NonNull;
+
+/**
+ * Holds the configuration of a {@link HedgedQuery} handler together with a sliding window of its
+ * recent latencies, from which the delay before hedging is derived.
+ */
+final class QueryHedging {
+  private static final int WINDOW = 256;
+  private static final int MIN_SAMPLES = 20;
+  private static final int REFRESH_EVERY = 16;
+
+  private final double percentile;
+  @Getter private final int maxHedges;
+
+  /** guarded by this */
+  private final long[] samples = new long[WINDOW];
+
+  /** slot of the next sample, guarded by this */
+  private int next;
+
+  /** number of slots holding a sample, up to the size of the window, guarded by this */
+  private int filled;
+
+  /** guarded by this */
+  private int sinceRefresh;
+
+  private volatile long delayNanos = -1;
+
+  QueryHedging(double percentile, int maxHedges) {
+    if (percentile <= 0 || percentile > 100) {
+      throw new IllegalArgumentException("percentile must be within (0, 100]");
+    }
+    this.percentile = percentile;
+    this.maxHedges = Math.max(0, maxHedges);
+  }
+
+  static QueryHedging of(@NonNull HedgedQuery config) {
+    return new QueryHedging(config.afterPercentile(), config.maxHedges());
+  }
+
+  /**
+   * @return the delay after which to hedge, or -1 if not enough latencies were observed yet
+   */
+  long getDelayNanos() {
+    return delayNanos;
+  }
+
+  synchronized void record(long nanos) {
+    samples[next] = nanos;
+    next = (next + 1) % WINDOW;
+    if (filled < WINDOW) {
+      filled++;
+    }
+    if (filled >= MIN_SAMPLES && (++sinceRefresh >= REFRESH_EVERY || delayNanos < 0)) {
+      sinceRefresh = 0;
+      long[] sorted = Arrays.copyOf(samples, filled);
+      Arrays.sort(sorted);
+      int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+      delayNanos = sorted[Math.max(0, index)];
+    }
+  }
+}
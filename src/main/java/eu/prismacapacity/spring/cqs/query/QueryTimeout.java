@@ -0,0 +1,34 @@
+/*
+ * Copyright © 2026 PRISMA European Capacity Platform GmbH 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.prismacapacity.spring.cqs.query;
+
+import java.lang.annotation.*;
+
+/**
+ * Enforces a time budget on the handle method of a {@link QueryHandler}. If present, the handle
+ * method is executed on a separate (virtual, if available) thread and abandoned once the budget is
+ * exceeded, which results in a {@link QueryTimeoutException}.
+ *
+ * <p>As the handle method is executed on another thread, thread bound state of the caller (like the
+ * current transaction) is not available within it.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE})
+@Inherited
+public @interface QueryTimeout {
+  /** Maximum time in milliseconds the handle method is allowed to take. */
+  long millis();
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright © 2026 PRISMA European Capacity Platform GmbH 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.prismacapacity.spring.cqs.query;
+
+import lombok.NonNull;
+import org.reactivestreams.Publisher;
+
+/**
+ * Query handler returning a {@code Mono<T>} or {@code Flux<T>}. Validation and verification happen
+ * eagerly when handle is called, everything else (execution, timing, timeout, retry) is applied
+ * when the returned publisher is subscribed to.
+ *
+ * <p>Implementations should declare {@code Mono} or {@code Flux} as the return type of their handle
+ * method, as it determines the type of publisher returned to the caller. A {@code Mono} completing
+ * empty is treated like a null result of a {@link QueryHandler}.
+ */
+public interface ReactiveQueryHandler<Q extends Query, T> extends IQueryHandler<Q> {
+
+  @NonNull
+  Publisher<T> handle(@NonNull Q query) throws QueryHandlingException;
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright © 2026 PRISMA European Capacity Platform GmbH 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.prismacapacity.spring.cqs.query;
+
+import eu.prismacapacity.spring.cqs.HandlerActivity;
+import eu.prismacapacity.spring.cqs.deadline.Deadline;
+import eu.prismacapacity.spring.cqs.limit.AdaptiveLimit;
+import eu.prismacapacity.spring.cqs.limit.Bulkhead;
+import eu.prismacapacity.spring.cqs.retry.RetryConfiguration;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import lombok.NonNull;
+import lombok.Value;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+import reactor.util.retry.RetryBackoffSpec;
+
+/** The reactive counterpart of {@link QueryHandlerDescriptor}. */
+@Value
+class ReactiveQueryHandlerDescriptor {
+
+  @NonNull Class<?> handlerClass;
+
+  /** used to tag metrics */
+  @NonNull String name;
+
+  /** whether the handle method is declared to return a Mono rather than a Flux */
+  boolean mono;
+
+  /** enforced time budget per attempt, if any */
+  @NonNull Optional<Duration> timeout;
+
+  @NonNull Optional<Retry> retry;
+
+  /** subscriptions in flight and throughput */
+  @NonNull HandlerActivity activity;
+
+  /** applied by {@link QueryHandlerOrchestrationAspect} only, so they must not be relied on */
+  private static final List<Class<? extends Annotation>> UNSUPPORTED =
+      Arrays.asList(
+          Bulkhead.class,
+          AdaptiveLimit.class,
+          CachedQuery.class,
+          SingleFlight.class,
+          HedgedQuery.class,
+          Deadline.class);
+
+  /**
+   * @throws IllegalStateException if the handler is annotated with something the reactive
+   *     orchestration does not apply
+   */
+  static ReactiveQueryHandlerDescriptor of(@NonNull Class<?> handlerClass) {
+    failIfUnsupported(handlerClass);
+    QueryTimeout timeout = handlerClass.getAnnotation(QueryTimeout.class);
+    return new ReactiveQueryHandlerDescriptor(
+        handlerClass,
+        handlerClass.getName(),
+        returnsMono(handlerClass),
+        Optional.ofNullable(timeout).map(t -> Duration.ofMillis(t.millis())),
+        Optional.ofNullable(handlerClass.getAnnotation(RetryConfiguration.class))
+            .map(ReactiveQueryHandlerDescriptor::retryFor),
+        new HandlerActivity());
+  }
+
+  private static void failIfUnsupported(Class<?> handlerClass) {
+    for (Class<? extends Annotation> annotation : UNSUPPORTED) {
+      if (handlerClass.isAnnotationPresent(annotation)) {
+        throw unsupported(handlerClass, "@" + annotation.getSimpleName());
+      }
+    }
+    RetryConfiguration retry = handlerClass.getAnnotation(RetryConfiguration.class);
+    if (retry != null && retry.budgetRatio() > 0) {
+      throw unsupported(handlerClass, "a retry budget");
+    }
+    if (retry != null && retry.jitter() > 0) {
+      throw unsupported(handlerClass, "retry jitter");
+    }
+  }
+
+  private static IllegalStateException unsupported(Class<?> handlerClass, String what) {
+    return new IllegalStateException(
+        "Reactive query handler " + handlerClass.getName() + " does not support " + what);
+  }
+
+  private static boolean returnsMono(Class<?> handlerClass) {
+    for (Method m : handlerClass.getMethods()) {
+      if (m.getName().equals("handle")
+          && m.getParameterCount() == 1
+          && !m.isBridge()
+          && Mono.class.isAssignableFrom(m.getReturnType())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** mirrors the retry template created by RetryUtils for the same configuration */
+  static Retry retryFor(@NonNull RetryConfiguration config) {
+    Duration interval = Duration.ofMillis(config.interval());
+    RetryBackoffSpec spec =
+        config.exponentialBackoffMaxInterval() != 0
+            ? Retry.backoff(config.maxAttempts(), interval)
+                .multiplier(1.2)
+                .maxBackoff(Duration.ofMillis(config.exponentialBackoffMaxInterval()))
+                .jitter(0)
+            : Retry.fixedDelay(config.maxAttempts(), interval);
+    Class<? extends Throwable>[] notRetryOn = config.notRetryOn();
+    return spec.filter(e -> !matchesAny(e, notRetryOn))
+        .onRetryExhaustedThrow((s, signal) -> signal.failure());
+  }
+
+  private static boolean matchesAny(Throwable e, Class<? extends Throwable>[] types) {
+    for (Throwable t = e; t != null; t = t.getCause()) {
+      Class<?> type = t.getClass();
+      if (Arrays.stream(types).anyMatch(c -> c.isAssignableFrom(type))) return true;
+      if (t.getCause() == t) break;
+    }
+    return false;
+  }
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright © 2026 PRISMA European Capacity Platform GmbH 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.prismacapacity.spring.cqs.query;
+
+import eu.prismacapacity.spring.cqs.BeanValidation;
+import eu.prismacapacity.spring.cqs.HandlerActivity;
+import eu.prismacapacity.spring.cqs.metrics.HandlerObservations;
+import eu.prismacapacity.spring.cqs.metrics.HandlerSlo;
+import eu.prismacapacity.spring.cqs.metrics.QueryMetrics;
+import io.micrometer.observation.ObservationRegistry;
+import jakarta.validation.Validator;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.NonNull;
+import lombok.val;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+/**
+ * Orchestrates a ReactiveQueryHandler the same way {@link QueryHandlerOrchestrationAspect} does for
+ * a QueryHandler. Validation and verification are executed eagerly, so that invalid queries fail
+ * before anything is subscribed to. The handle method itself is invoked once per subscription (and
+ * once per retry), and its result is decorated with timing, timeout, null-check and exception
+ * mapping operators.
+ */
+@Aspect
+@SuppressWarnings("unchecked")
+public final class ReactiveQueryHandlerOrchestrationAspect {
+  private final Validator validator;
+
+  private final QueryMetrics metrics;
+
+  private final HandlerObservations observations;
+
+  private final Map<Class<?>, ReactiveQueryHandlerDescriptor> descriptors =
+      new ConcurrentHashMap<>();
+
+  private final BeanValidation beanValidation = new BeanValidation();
+
+  public ReactiveQueryHandlerOrchestrationAspect(
+      @NonNull Validator validator, @NonNull QueryMetrics metrics) {
+    this(validator, metrics, null);
+  }
+
+  /**
+   * @param observationRegistry observes every attempt of an invocation (see {@link
+   *     HandlerObservations}), null to not observe them
+   */
+  public ReactiveQueryHandlerOrchestrationAspect(
+      @NonNull Validator validator,
+      @NonNull QueryMetrics metrics,
+      ObservationRegistry observationRegistry) {
+    this.validator = validator;
+    this.metrics = metrics;
+    this.observations = HandlerObservations.of(observationRegistry);
+  }
+
+  @Around("execution(* eu.prismacapacity.spring.cqs.query.ReactiveQueryHandler.handle(..))")
+  public Object orchestrate(ProceedingJoinPoint joinPoint) throws QueryHandlingException {
+    val target = (ReactiveQueryHandler<Query, ?>) joinPoint.getTarget();
+    return orchestrate(
+        describe(target), target, (Query) joinPoint.getArgs()[0], joinPoint::proceed);
+  }
+
+  ReactiveQueryHandlerDescriptor describe(@NonNull Object target) {
+    Class<?> handlerClass = target.getClass();
+    ReactiveQueryHandlerDescriptor descriptor = descriptors.get(handlerClass);
+    if (descriptor == null) {
+      descriptor = descriptors.computeIfAbsent(handlerClass, this::create);
+    }
+    return descriptor;
+  }
+
+  private ReactiveQueryHandlerDescriptor create(Class<?> handlerClass) {
+    val descriptor = ReactiveQueryHandlerDescriptor.of(handlerClass);
+    metrics.registerActivity(descriptor.getName(), descriptor.getActivity());
+    Optional.ofNullable(handlerClass.getAnnotation(HandlerSlo.class))
+        .ifPresent(s -> metrics.registerSlo(descriptor.getName(), s));
+    return descriptor;
+  }
+
+  <Q extends Query> Publisher<Object> orchestrate(
+      ReactiveQueryHandlerDescriptor descriptor,
+      ReactiveQueryHandler<Q, ?> target,
+      Q query,
+      QueryHandlerOrchestrationAspect.Invocation invocation)
+      throws QueryHandlingException {
+
+    QueryHandlerOrchestrationAspect.validateAndVerify(
+        validator, beanValidation, metrics, descriptor.getName(), target, query);
+
+    Flux<Object> result =
+        Flux.defer(
+            () -> {
+              AtomicInteger count = new AtomicInteger(0);
+              Flux<Object> attempts =
+                  Flux.defer(() -> attempt(descriptor, count.getAndIncrement(), invocation));
+              return descriptor.getRetry().map(attempts::retryWhen).orElse(attempts);
+            });
+    HandlerActivity activity = descriptor.getActivity();
+    result = result.doOnSubscribe(s -> activity.begin()).doFinally(signal -> activity.end());
+    return descriptor.isMono() ? Mono.fromDirect(result) : result;
+  }
+
+  private Flux<Object> attempt(
+      ReactiveQueryHandlerDescriptor descriptor,
+      int count,
+      QueryHandlerOrchestrationAspect.Invocation invocation) {
+    long start = System.nanoTime();
+    Flux<Object> result;
+    try {
+      Publisher<Object> publisher = (Publisher<Object>) invocation.proceed();
+      if (publisher == null) {
+        throw new QueryHandlingException("Returned publisher must not be null");
+      }
+      result = Flux.from(publisher);
+    } catch (Throwable e) {
+      result = Flux.error(e);
+    }
+
+    if (descriptor.isMono()) {
+      result =
+          result.switchIfEmpty(
+              Flux.error(() -> new QueryHandlingException("Returned object must not be null")));
+    }
+    if (descriptor.getTimeout().isPresent()) {
+      result = within(descriptor.getTimeout().get(), result);
+    }
+    result = result.onErrorMap(e -> map(descriptor, start, e));
+
+    CompletableFuture<Object> done = new CompletableFuture<>();
+    observations.observeAsync(
+        HandlerObservations.QUERY_OBSERVATION_NAME,
+        descriptor.getName(),
+        count,
+        null,
+        () -> metrics.timedQueryAsync(descriptor.getName(), count, () -> done));
+    return result
+        .doOnError(done::completeExceptionally)
+        .doFinally(
+            signal -> {
+              // a cancelled attempt neither succeeded nor failed, and is not retried
+              if (signal == SignalType.CANCEL) {
+                done.cancel(false);
+              } else {
+                done.complete(null);
+              }
+            });
+  }
+
+  /** limits the whole attempt rather than the time between two elements */
+  private static Flux<Object> within(Duration timeout, Flux<Object> result) {
+    long deadline = System.nanoTime() + timeout.toNanos();
+    return result.timeout(
+        Mono.delay(timeout),
+        e -> Mono.delay(Duration.ofNanos(Math.max(0, deadline - System.nanoTime()))));
+  }
+
+  private Throwable map(ReactiveQueryHandlerDescriptor descriptor, long start, Throwable e) {
+    if (e instanceof TimeoutException) {
+      metrics.logTimeout(descriptor.getName(), System.nanoTime() - start);
+      return new QueryTimeoutException((TimeoutException) e);
+    } else if (e instanceof QueryTimeoutException) {
+      metrics.logTimeout(descriptor.getName(), System.nanoTime() - start);
+      return e;
+    } else if (e instanceof QueryHandlingException) {
+      return e;
+    } else {
+      return new QueryHandlingException(e);
+    }
+  }
+}
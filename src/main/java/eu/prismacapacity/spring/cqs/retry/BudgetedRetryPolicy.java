@@ -0,0 +1,113 @@
+/*
+ * Copyright © 2026 PRISMA European Capacity Platform GmbH 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.prismacapacity.spring.cqs.retry;
+
+import eu.prismacapacity.spring.cqs.cmd.CommandRejectedException;
+import eu.prismacapacity.spring.cqs.deadline.DeadlineContext;
+import eu.prismacapacity.spring.cqs.query.QueryRejectedException;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.retry.RetryPolicy;
+import org.springframework.util.backoff.BackOff;
+import org.springframework.util.backoff.BackOffExecution;
+
+/**
+ * Only retries while the budget of the handler (if any) and the global one (if any) allow it.
+ * Tokens are withdrawn when the backoff is requested, which happens after an exception has been
+ * found to be retryable and only if another attempt is left.
+ *
+ * <p>Nothing is retried once the deadline of the current thread (see {@link DeadlineContext}) has
+ * passed, and no backoff lasts longer than the time remaining until then. Invocations rejected by a
+ * bulkhead or adaptive limit are not retried either, as that would bring back the load the limit
+ * just shed.
+ */
+@RequiredArgsConstructor
+class BudgetedRetryPolicy implements RetryPolicy {
+  @NonNull private final RetryPolicy delegate;
+
+  @NonNull private final Optional<RetryBudget> budget;
+
+  /** shared by all handlers, in addition to their own budgets */
+  @NonNull private final Optional<RetryBudget> globalBudget;
+
+  /** to be called once per invocation */
+  void deposit() {
+    budget.ifPresent(RetryBudget::deposit);
+    globalBudget.ifPresent(RetryBudget::deposit);
+  }
+
+  Optional<RetryBudget> getBudget() {
+    return budget;
+  }
+
+  @Override
+  public boolean shouldRetry(Throwable throwable) {
+    return !DeadlineContext.isExpired() && isRetryable(throwable);
+  }
+
+  /**
+   * @return whether the exception is one to retry on, no matter if there is time left to do so
+   */
+  boolean isRetryable(Throwable throwable) {
+    return !isRejection(throwable) && delegate.shouldRetry(throwable);
+  }
+
+  private static boolean isRejection(Throwable throwable) {
+    return throwable instanceof CommandRejectedException
+        || throwable instanceof QueryRejectedException;
+  }
+
+  @Override
+  public Duration getTimeout() {
+    return delegate.getTimeout();
+  }
+
+  @Override
+  public BackOff getBackOff() {
+    BackOff backOff = delegate.getBackOff();
+    return () -> {
+      BackOffExecution execution = backOff.start();
+      return () -> {
+        long delay = execution.nextBackOff();
+        if (delay == BackOffExecution.STOP) {
+          return delay;
+        }
+        long remainingNanos = DeadlineContext.remainingNanos();
+        if (remainingNanos <= 0) {
+          return BackOffExecution.STOP;
+        }
+        // rounded up, so that the next attempt does not start just before the deadline passes
+        long remainingMillis = (remainingNanos - 1) / TimeUnit.MILLISECONDS.toNanos(1) + 1;
+        delay = Math.min(delay, remainingMillis);
+        return tryWithdraw() ? delay : BackOffExecution.STOP;
+      };
+    };
+  }
+
+  private boolean tryWithdraw() {
+    if (budget.isPresent() && !budget.get().tryWithdraw()) {
+      return false;
+    }
+    if (globalBudget.isPresent() && !globalBudget.get().tryWithdraw()) {
+      budget.ifPresent(RetryBudget::refund);
+      return false;
+    }
+    return true;
+  }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright © 2026 PRISMA European Capacity Platform GmbH 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.prismacapacity.spring.cqs.retry;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Token bucket limiting retries to a share of the invocations. Every invocation deposits {@code
+ * ratio} tokens and every retry withdraws one, so that retries are skipped once they exceed that
+ * share. The bucket starts full and holds at most {@code capacity} tokens, which allows handlers
+ * with few invocations to retry occasionally.
+ */
+public final class RetryBudget {
+  /** tokens are kept in thousandths to allow fractional deposits */
+  private static final long SCALE = 1000;
+
+  private final long deposit;
+  private final long capacity;
+  private final AtomicLong balance;
+  private final LongAdder exhausted = new LongAdder();
+
+  /**
+   * @param ratio share of invocations that may be retried, e.g. 0.1 for 10%
+   * @param capacity maximum number of retries that can be saved up
+   */
+  public RetryBudget(double ratio, int capacity) {
+    if (ratio <= 0 || capacity < 1) {
+      throw new IllegalArgumentException(
+          "Retry budget needs a positive ratio and capacity, got " + ratio + "/" + capacity);
+    }
+    this.deposit = Math.max(1, Math.round(ratio * SCALE));
+    this.capacity = capacity * SCALE;
+    this.balance = new AtomicLong(this.capacity);
+  }
+
+  /** to be called once per invocation */
+  public void deposit() {
+    add(deposit);
+  }
+
+  /**
+   * @return whether a retry is allowed, in which case a token is withdrawn
+   */
+  public boolean tryWithdraw() {
+    long current;
+    do {
+      current = balance.get();
+      if (current < SCALE) {
+        exhausted.increment();
+        return false;
+      }
+    } while (!balance.compareAndSet(current, current - SCALE));
+    return true;
+  }
+
+  /** returns a token that was withdrawn for a retry that did not happen */
+  void refund() {
+    add(SCALE);
+  }
+
+  /**
+   * @return the number of retries currently allowed
+   */
+  public double getBalance() {
+    return balance.get() / (double) SCALE;
+  }
+
+  /**
+   * @return the number of retries skipped because the budget was exhausted
+   */
+  public long getExhausted() {
+    return exhausted.sum();
+  }
+
+  private void add(long tokens) {
+    balance.accumulateAndGet(tokens, (b, t) -> Math.min(capacity, b + t));
+  }
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright © 2022 PRISMA European Capacity Platform GmbH 
+ * Copyright © 2022-2026 PRISMA European Capacity Platform GmbH 
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -35,6 +35,22 @@ public @interface RetryConfiguration {
   /** Enables exponential backoff by setting the max interval. */
   long exponentialBackoffMaxInterval() default 0;
 
+  /**
+   * Adds a random amount of up to the given millis to or subtracts it from each interval, so that
+   * handlers failing at the same time do not retry in lockstep.
+   */
+  long jitter() default 0;
+
+  /**
+   * Limits retries to the given share of invocations of the handler (e.g. 0.1 for 10%), so that a
+   * degraded dependency is not hit with up to {@link #maxAttempts()} times the load. Disabled if 0.
+   * See {@link RetryBudget}.
+   */
+  double budgetRatio() default 0;
+
+  /** Number of retries the budget can save up, if {@link #budgetRatio()} is set. */
+  int budgetCapacity() default 10;
+
   /** Configures a list of throwables where no retry will be executed. */
   Class<? extends Throwable>[] notRetryOn() default {
     CommandValidationException.class, QueryValidationException.class
@@ -0,0 +1,39 @@
+/*
+ * Copyright © 2026 PRISMA European Capacity Platform GmbH 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.prismacapacity.spring.cqs.retry;
+
+/** Is told how an invocation with a retry configuration went, e.g. to record metrics. */
+@FunctionalInterface
+public interface RetryObserver {
+  RetryObserver NONE = (attempts, backOffNanos, outcome) -> {};
+
+  enum Outcome {
+    SUCCEEDED,
+    /**
+     * failed with a retryable exception, but no attempts, retry budget or time until the deadline
+     * were left
+     */
+    EXHAUSTED,
+    /** failed with an exception that is not to be retried (see notRetryOn) or a rejection */
+    NOT_RETRYABLE
+  }
+
+  /**
+   * @param attempts number of attempts made, including the first one
+   * @param backOffNanos total time spent waiting between attempts
+   */
+  void onCompleted(int attempts, long backOffNanos, Outcome outcome);
+}
@@ -15,44 +15,90 @@
  */
 package eu.prismacapacity.spring.cqs.retry;
 
+import eu.prismacapacity.spring.cqs.CqsExecutors;
+import eu.prismacapacity.spring.cqs.deadline.DeadlineContext;
 import java.time.Duration;
-import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.function.Function;
 import lombok.SneakyThrows;
 import lombok.experimental.UtilityClass;
 import org.springframework.core.retry.RetryException;
 import org.springframework.core.retry.RetryPolicy;
 import org.springframework.core.retry.RetryTemplate;
+import org.springframework.util.backoff.BackOffExecution;
 
 @UtilityClass
 public class RetryUtils {
-  private static final Map<Class<?>, Optional<RetryTemplate>> CACHE = new ConcurrentHashMap<>();
+  /**
+   * @return the budget of the handler the template was created for, if it configures one
+   */
+  public Optional<RetryBudget> retryBudgetOf(Optional<RetryTemplate> template) {
+    return template
+        .map(RetryTemplate::getRetryPolicy)
+        .filter(BudgetedRetryPolicy.class::isInstance)
+        .flatMap(p -> ((BudgetedRetryPolicy) p).getBudget());
+  }
 
-  private Optional<RetryTemplate> from(Class<?> clazz) {
-    return CACHE.computeIfAbsent(clazz, RetryUtils::getRetryTemplate);
+  /**
+   * @return a new retry template configured by {@link RetryConfiguration} on the given class, if
+   *     any. Each template has a retry budget of its own, so it is to be kept for as long as that
+   *     budget applies, as the handler descriptors of an application context do.
+   */
+  public Optional<RetryTemplate> retryTemplateFor(Class<?> clazz) {
+    return retryTemplateFor(clazz, null);
   }
 
-  @SneakyThrows
+  /**
+   * @param globalBudget limits the retries of all handlers in addition to their own budgets, null
+   *     if none
+   * @return a new retry template configured by {@link RetryConfiguration} on the given class, if
+   *     any, additionally limited by the global budget
+   */
+  public Optional<RetryTemplate> retryTemplateFor(Class<?> clazz, RetryBudget globalBudget) {
+    return getRetryTemplate(clazz, Optional.ofNullable(globalBudget));
+  }
+
+  /**
+   * Reads the {@link RetryConfiguration} of the handler on every call, so that a retry budget does
+   * not carry over from one invocation to the next. Keep the template of {@link
+   * #retryTemplateFor(Class)} and pass it instead where the budget matters.
+   */
   public <R> R withOptionalRetry(Class<?> handler, Function<Integer, R> fn) {
-    final Optional<RetryTemplate> template = from(handler);
+    return withOptionalRetry(retryTemplateFor(handler), fn);
+  }
+
+  public <R> R withOptionalRetry(Optional<RetryTemplate> template, Function<Integer, R> fn) {
+    return withOptionalRetry(template, RetryObserver.NONE, fn);
+  }
 
+  /**
+   * @param observer is told about the attempts once the invocation completed, if there is a
+   *     template
+   */
+  @SneakyThrows
+  public <R> R withOptionalRetry(
+      Optional<RetryTemplate> template, RetryObserver observer, Function<Integer, R> fn) {
     if (template.isPresent()) {
-      final AtomicInteger counter = new AtomicInteger(0);
+      deposit(template.get());
+      final Attempts attempts = new Attempts();
       try {
-        return template
-            .get()
-            .execute(
-                () -> {
-                  try {
-                    return fn.apply(counter.get());
-                  } finally {
-                    counter.incrementAndGet();
-                  }
-                });
+        final R result =
+            template
+                .get()
+                .execute(
+                    () -> {
+                      try {
+                        return fn.apply(attempts.start());
+                      } finally {
+                        attempts.end();
+                      }
+                    });
+        attempts.report(observer, RetryObserver.Outcome.SUCCEEDED);
+        return result;
       } catch (RetryException e) {
+        attempts.report(observer, outcomeOf(template.get().getRetryPolicy(), e.getCause()));
         throw e.getCause();
       }
     } else {
@@ -60,7 +106,126 @@ public class RetryUtils {
     }
   }
 
-  Optional<RetryTemplate> getRetryTemplate(Class<?> clazz) {
+  public <R> CompletableFuture<R> withOptionalRetryAsync(
+      Optional<RetryTemplate> template, Function<Integer, CompletableFuture<R>> fn) {
+    return withOptionalRetryAsync(template, RetryObserver.NONE, fn);
+  }
+
+  /**
+   * Same as {@link #withOptionalRetry(Optional, RetryObserver, Function)} for functions that
+   * complete asynchronously. Instead of sleeping on the calling thread, the next attempt is
+   * scheduled once the backoff has passed, so that waiting does not occupy a thread. The returned
+   * future completes with the outcome of the last attempt.
+   *
+   * <p>The deadline of the calling thread (see {@link DeadlineContext}) applies to all attempts and
+   * to the decision whether to retry, no matter which thread completes the futures.
+   */
+  public <R> CompletableFuture<R> withOptionalRetryAsync(
+      Optional<RetryTemplate> template,
+      RetryObserver observer,
+      Function<Integer, CompletableFuture<R>> fn) {
+    if (!template.isPresent()) {
+      return fn.apply(0);
+    }
+    deposit(template.get());
+    final RetryPolicy policy = template.get().getRetryPolicy();
+    final CompletableFuture<R> result = new CompletableFuture<>();
+    final Long deadline = DeadlineContext.capture();
+    attempt(policy, policy.getBackOff().start(), new Attempts(), observer, deadline, fn, result);
+    return result;
+  }
+
+  private void deposit(RetryTemplate template) {
+    if (template.getRetryPolicy() instanceof BudgetedRetryPolicy) {
+      ((BudgetedRetryPolicy) template.getRetryPolicy()).deposit();
+    }
+  }
+
+  private <R> void attempt(
+      RetryPolicy policy,
+      BackOffExecution backOff,
+      Attempts attempts,
+      RetryObserver observer,
+      Long deadline,
+      Function<Integer, CompletableFuture<R>> fn,
+      CompletableFuture<R> result) {
+    CompletableFuture<R> future;
+    try {
+      future = fn.apply(attempts.start());
+    } catch (Throwable e) {
+      future = new CompletableFuture<>();
+      future.completeExceptionally(e);
+    }
+    future.whenComplete(
+        (value, e) -> {
+          attempts.end();
+          if (e == null) {
+            attempts.report(observer, RetryObserver.Outcome.SUCCEEDED);
+            result.complete(value);
+            return;
+          }
+          final Throwable cause =
+              e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+          // runs on the thread completing the future, so the deadline of the caller is restored
+          try (DeadlineContext.Scope scope = DeadlineContext.restore(deadline)) {
+            final long delay =
+                policy.shouldRetry(cause) ? backOff.nextBackOff() : BackOffExecution.STOP;
+            if (delay == BackOffExecution.STOP) {
+              attempts.report(observer, outcomeOf(policy, cause));
+              result.completeExceptionally(cause);
+            } else {
+              CqsExecutors.schedule(
+                  DeadlineContext.propagate(
+                      () -> attempt(policy, backOff, attempts, observer, deadline, fn, result)),
+                  delay);
+            }
+          }
+        });
+  }
+
+  /**
+   * An invocation that ran out of time before its attempts did still failed with a retryable
+   * exception, so it counts as exhausted rather than as not retryable.
+   */
+  private RetryObserver.Outcome outcomeOf(RetryPolicy policy, Throwable failure) {
+    final boolean retryable =
+        policy instanceof BudgetedRetryPolicy
+            ? ((BudgetedRetryPolicy) policy).isRetryable(failure)
+            : policy.shouldRetry(failure);
+    return retryable ? RetryObserver.Outcome.EXHAUSTED : RetryObserver.Outcome.NOT_RETRYABLE;
+  }
+
+  /**
+   * Counts the attempts of an invocation and the time between them. Attempts happen one after
+   * another, handing over to the next one either on the same thread or through an executor.
+   */
+  private static final class Attempts {
+    private int count;
+    private long backOffNanos;
+    private long lastEnd;
+
+    /**
+     * @return the number of the attempt starting, 0 for the first one
+     */
+    int start() {
+      if (count > 0) {
+        backOffNanos += System.nanoTime() - lastEnd;
+      }
+      return count;
+    }
+
+    void end() {
+      count++;
+      lastEnd = System.nanoTime();
+    }
+
+    void report(RetryObserver observer, RetryObserver.Outcome outcome) {
+      observer.onCompleted(count, backOffNanos, outcome);
+    }
+  }
+
+  private Optional<RetryTemplate> getRetryTemplate(
+      Class<?> clazz, Optional<RetryBudget> globalBudget) {
     return Optional.ofNullable(clazz.getAnnotation(RetryConfiguration.class))
         .map(
             config -> {
@@ -72,6 +237,9 @@ public class RetryUtils {
               final long maxInterval = config.exponentialBackoffMaxInterval();
 
               policyBuilder.delay(Duration.ofMillis(interval));
+              if (config.jitter() > 0) {
+                policyBuilder.jitter(Duration.ofMillis(config.jitter()));
+              }
               if (maxInterval != 0) {
                 policyBuilder.multiplier(1.2);
                 policyBuilder.maxDelay(Duration.ofMillis(maxInterval));
@@ -82,7 +250,12 @@ public class RetryUtils {
                 policyBuilder.excludes(notRetryOn);
               }
 
-              return new RetryTemplate(policyBuilder.build());
+              final Optional<RetryBudget> budget =
+                  config.budgetRatio() > 0
+                      ? Optional.of(new RetryBudget(config.budgetRatio(), config.budgetCapacity()))
+                      : Optional.empty();
+              return new RetryTemplate(
+                  new BudgetedRetryPolicy(policyBuilder.build(), budget, globalBudget));
             });
   }
 }
@@ -0,0 +1,68 @@
+/*
+ * Copyright © 2026 PRISMA European Capacity Platform GmbH 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.prismacapacity.spring.cqs;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.metadata.BeanDescriptor;
+import lombok.val;
+import org.junit.jupiter.api.Test;
+
+class BeanValidationTest {
+  private final BeanValidation uut = new BeanValidation();
+
+  static class Unconstrained {
+    String name;
+  }
+
+  static class Constrained {
+    @NotNull String name;
+  }
+
+  @Test
+  void skipsUnconstrainedTypes() {
+    val validator = mock(Validator.class);
+    val descriptor = mock(BeanDescriptor.class);
+    when(validator.getConstraintsForClass(Unconstrained.class)).thenReturn(descriptor);
+
+    assertTrue(uut.validate(validator, new Unconstrained()).isEmpty());
+    assertTrue(uut.validate(validator, new Unconstrained()).isEmpty());
+
+    verify(validator, times(1)).getConstraintsForClass(Unconstrained.class);
+    verify(validator, never()).validate(any());
+  }
+
+  @Test
+  void validatesWhenValidatorCannotTell() {
+    val validator = mock(Validator.class);
+
+    uut.validate(validator, new Unconstrained());
+
+    verify(validator).validate(any());
+  }
+
+  @Test
+  void validatesConstrainedTypes() {
+    Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
+    assertEquals(1, uut.validate(validator, new Constrained()).size());
+    assertTrue(uut.validate(validator, new Unconstrained()).isEmpty());
+  }
+}
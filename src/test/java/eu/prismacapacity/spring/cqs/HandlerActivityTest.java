@@ -0,0 +1,77 @@
+/*
+ * Copyright © 2026 PRISMA European Capacity Platform GmbH 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.prismacapacity.spring.cqs;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+class HandlerActivityTest {
+  private final AtomicLong clock = new AtomicLong(TimeUnit.HOURS.toNanos(1));
+  private final HandlerActivity activity = new HandlerActivity(clock::get);
+
+  @Test
+  void countsInFlight() {
+    activity.begin();
+    activity.begin();
+    assertEquals(2, activity.getInFlight());
+
+    activity.end();
+    assertEquals(1, activity.getInFlight());
+  }
+
+  @Test
+  void averagesCompletionsOverFullSeconds() {
+    for (int i = 0; i < 20; i++) {
+      activity.begin();
+      activity.end();
+    }
+    // the current second is not complete yet
+    assertEquals(0, activity.getThroughput());
+
+    advanceSeconds(1);
+    assertEquals(2, activity.getThroughput());
+  }
+
+  @Test
+  void forgetsCompletionsOutsideTheWindow() {
+    activity.begin();
+    activity.end();
+    advanceSeconds(HandlerActivity.WINDOW_SECONDS);
+    assertEquals(0.1, activity.getThroughput());
+
+    advanceSeconds(1);
+    assertEquals(0, activity.getThroughput());
+  }
+
+  @Test
+  void reusesSlotsOfPastSeconds() {
+    activity.begin();
+    activity.end();
+    advanceSeconds(HandlerActivity.WINDOW_SECONDS + 1);
+    activity.begin();
+    activity.end();
+
+    advanceSeconds(1);
+    assertEquals(0.1, activity.getThroughput());
+  }
+
+  private void advanceSeconds(int seconds) {
+    clock.addAndGet(TimeUnit.SECONDS.toNanos(seconds));
+  }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright © 2026 PRISMA European Capacity Platform GmbH 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.prismacapacity.spring.cqs.bus;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import eu.prismacapacity.spring.cqs.cmd.*;
+import eu.prismacapacity.spring.cqs.metrics.CqsMetrics;
+import eu.prismacapacity.spring.cqs.query.*;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import lombok.NonNull;
+import lombok.Value;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+class CqsBusTest {
+  private AnnotationConfigApplicationContext context;
+
+  @BeforeEach
+  void setup() {
+    Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+    CqsMetrics metrics = new CqsMetrics(new SimpleMeterRegistry(), "query", "timeout", "command");
+    context = new AnnotationConfigApplicationContext();
+    context.registerBean("first", FooQueryHandler.class, () -> new FooQueryHandler("first"));
+    context.registerBean("second", FooQueryHandler.class, () -> new FooQueryHandler("second"));
+    context.registerBean(BarQueryHandler.class);
+    context.registerBean(FooCommandHandler.class);
+    context.registerBean(FooTokenCommandHandler.class);
+    context.registerBean(
+        CqsBus.class,
+        () ->
+            new CqsBus(
+                context.getBeanFactory(),
+                new CommandHandlerOrchestrationAspect(validator, metrics),
+                new QueryHandlerOrchestrationAspect(validator, metrics)));
+  }
+
+  @AfterEach
+  void tearDown() {
+    context.close();
+  }
+
+  @Test
+  void startsWithSeveralHandlersForTheSameType() {
+    assertDoesNotThrow(context::refresh);
+  }
+
+  @Test
+  void dispatchesUnambiguousTypes() {
+    context.refresh();
+
+    String result = context.getBean(CqsBus.class).ask(new BarQuery());
+    assertEquals("bar", result);
+  }
+
+  @Test
+  void rejectsAmbiguousTypesOnDispatch() {
+    context.refresh();
+    CqsBus bus = context.getBean(CqsBus.class);
+
+    assertThrows(IllegalStateException.class, () -> bus.ask(new FooQuery()));
+    assertThrows(IllegalStateException.class, () -> bus.send(new FooCommand()));
+  }
+
+  static class FooQuery implements Query {}
+
+  static class BarQuery implements Query {}
+
+  static class FooCommand implements Command {}
+
+  @Value
+  static class FooQueryHandler implements QueryHandler<FooQuery, String> {
+    String name;
+
+    @Override
+    public void verify(@NonNull FooQuery query) throws QueryVerificationException {}
+
+    @Override
+    public @NonNull String handle(@NonNull FooQuery query) {
+      return name;
+    }
+  }
+
+  static class BarQueryHandler implements QueryHandler<BarQuery, String> {
+    @Override
+    public void verify(@NonNull BarQuery query) throws QueryVerificationException {}
+
+    @Override
+    public @NonNull String handle(@NonNull BarQuery query) {
+      return "bar";
+    }
+  }
+
+  static class FooCommandHandler implements CommandHandler<FooCommand> {
+    @Override
+    public void verify(@NonNull FooCommand cmd) throws CommandVerificationException {}
+
+    @Override
+    public void handle(@NonNull FooCommand cmd) {}
+  }
+
+  static class FooTokenCommandHandler implements TokenCommandHandler<FooCommand> {
+    @Override
+    public void verify(@NonNull FooCommand cmd) throws CommandVerificationException {}
+
+    @Override
+    public @NonNull CommandTokenResponse handle(@NonNull FooCommand cmd) {
+      return CommandTokenResponse.empty();
+    }
+  }
+}
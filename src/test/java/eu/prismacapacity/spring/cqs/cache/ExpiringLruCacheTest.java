@@ -0,0 +1,67 @@
+/*
+ * Copyright © 2026 PRISMA European Capacity Platform GmbH 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.prismacapacity.spring.cqs.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+class ExpiringLruCacheTest {
+  private final AtomicLong now = new AtomicLong();
+
+  @Test
+  void expiresEntriesAfterTtl() {
+    ExpiringLruCache<String, String> uut = new ExpiringLruCache<>(10, 100, now::get);
+    uut.put("a", "1");
+
+    now.set(99);
+    assertEquals("1", uut.get("a"));
+
+    now.set(100);
+    assertNull(uut.get("a"));
+    assertEquals(0, uut.size());
+  }
+
+  @Test
+  void evictsLeastRecentlyUsed() {
+    ExpiringLruCache<Integer, String> uut = new ExpiringLruCache<>(1, 100, now::get);
+    assertEquals(0, uut.put(1, "1"));
+
+    assertEquals(1, uut.put(2, "2"));
+
+    assertNull(uut.get(1));
+    assertEquals("2", uut.get(2));
+  }
+
+  @Test
+  void staysWithinMaxSize() {
+    ExpiringLruCache<Integer, Integer> uut = new ExpiringLruCache<>(50, 100, now::get);
+    int evicted = 0;
+    for (int i = 0; i < 1000; i++) {
+      evicted += uut.put(i, i);
+    }
+
+    assertEquals(50, uut.size());
+    assertEquals(950, evicted);
+  }
+
+  @Test
+  void rejectsInvalidBounds() {
+    assertThrows(IllegalArgumentException.class, () -> new ExpiringLruCache<>(0, 100));
+    assertThrows(IllegalArgumentException.class, () -> new ExpiringLruCache<>(10, 0));
+  }
+}
@@ -18,14 +18,29 @@ package eu.prismacapacity.spring.cqs.cmd;
 import static org.mockito.Mockito.*;
 
 import eu.prismacapacity.spring.cqs.StateToken;
+import eu.prismacapacity.spring.cqs.deadline.Deadline;
+import eu.prismacapacity.spring.cqs.deadline.DeadlineContext;
+import eu.prismacapacity.spring.cqs.limit.Bulkhead;
 import eu.prismacapacity.spring.cqs.metrics.CommandMetrics;
+import eu.prismacapacity.spring.cqs.metrics.HandlerObservations;
+import eu.prismacapacity.spring.cqs.metrics.Phase;
 import eu.prismacapacity.spring.cqs.retry.RetryConfiguration;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationHandler;
+import io.micrometer.observation.ObservationRegistry;
 import jakarta.validation.ConstraintViolation;
 import jakarta.validation.Path;
 import jakarta.validation.Validator;
 import jakarta.validation.metadata.ConstraintDescriptor;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
 import lombok.NonNull;
 import lombok.val;
@@ -161,6 +176,29 @@ class CommandHandlerOrchestrationAspectTest {
       verify(handler, times(1)).handle(cmd);
     }
 
+    @Test
+    void timesPhasesIfEnabled() throws Throwable {
+      when(metrics.isPhaseTimingEnabled()).thenReturn(true);
+      when(joinPoint.proceed()).thenAnswer(invocation -> handler.handle(cmd));
+
+      underTest.process(joinPoint);
+
+      verify(metrics).logPhase(any(), eq(Phase.VALIDATION), anyLong());
+      verify(metrics).logPhase(any(), eq(Phase.VERIFICATION), anyLong());
+      verify(metrics).logPhase(any(), eq(Phase.EXECUTION), anyLong());
+      verify(metrics).logPhase(any(), eq(Phase.RENDERING), anyLong());
+      verify(metrics).logPhase(any(), eq(Phase.LOGGING), anyLong());
+    }
+
+    @Test
+    void doesNotTimePhasesByDefault() throws Throwable {
+      when(joinPoint.proceed()).thenAnswer(invocation -> handler.handle(cmd));
+
+      underTest.process(joinPoint);
+
+      verify(metrics, never()).logPhase(any(), any(), anyLong());
+    }
+
     @Test
     void beanValidationFails() throws Throwable {
 
@@ -285,11 +323,11 @@ class CommandHandlerOrchestrationAspectTest {
                 return fn.get();
               });
 
-      doThrow(new IllegalStateException("foo")).when(uut).process(joinPoint);
+      doThrow(new IllegalStateException("foo")).when(uut).process(any(), any(), any(), any());
 
       Assertions.assertThrows(IllegalStateException.class, () -> uut.orchestrate(joinPoint));
 
-      verify(uut, times(4)).process(joinPoint);
+      verify(uut, times(4)).process(any(), any(), any(), any());
       verify(metrics, times(4)).timedCommand(any(), anyInt(), any());
     }
 
@@ -320,4 +358,364 @@ class CommandHandlerOrchestrationAspectTest {
       Assertions.assertThrows(CommandHandlingException.class, () -> underTest.process(joinPoint));
     }
   }
+
+  @Nested
+  class WhenOrchestratingAsync {
+
+    class FooCommand implements Command {}
+
+    private final FooCommand cmd = new FooCommand();
+    private final CompletableFuture<CommandValueResponse<String>> pending =
+        new CompletableFuture<>();
+    private final AsyncRespondingCommandHandler<FooCommand, String> handler =
+        spy(
+            new AsyncRespondingCommandHandler<FooCommand, String>() {
+              @Override
+              public void verify(@NonNull FooCommand cmd) throws CommandVerificationException {}
+
+              @Override
+              public @NonNull CompletableFuture<CommandValueResponse<String>> handle(
+                  @NonNull FooCommand cmd) throws CommandHandlingException {
+                return pending;
+              }
+            });
+
+    private CompletableFuture<Object> process() {
+      return underTest.processAsync(
+          underTest.describe(handler), handler, cmd, () -> handler.handle(cmd));
+    }
+
+    @Test
+    void completesWithResponse() {
+      val result = process();
+      Assertions.assertFalse(result.isDone());
+
+      pending.complete(CommandValueResponse.of(null, "foo"));
+
+      Assertions.assertEquals("foo", ((CommandValueResponse<?>) result.join()).getValue());
+    }
+
+    @Test
+    void wrapsAsynchronousFailure() {
+      val result = process();
+      pending.completeExceptionally(new IllegalStateException());
+
+      val e = Assertions.assertThrows(ExecutionException.class, result::get);
+      Assertions.assertInstanceOf(CommandHandlingException.class, e.getCause());
+    }
+
+    @Test
+    void verificationFailsWithoutHandling() {
+      doThrow(RuntimeException.class).when(handler).verify(cmd);
+
+      val result = process();
+
+      val e = Assertions.assertThrows(ExecutionException.class, result::get);
+      Assertions.assertInstanceOf(CommandVerificationException.class, e.getCause());
+      verify(handler, never()).handle(cmd);
+    }
+
+    @Test
+    void preventsNullResponse() {
+      val result = process();
+      pending.complete(null);
+
+      val e = Assertions.assertThrows(ExecutionException.class, result::get);
+      Assertions.assertInstanceOf(CommandHandlingException.class, e.getCause());
+    }
+
+    @Test
+    void timesAsynchronously() {
+      when(metrics.timedCommandAsync(any(), anyInt(), any()))
+          .thenAnswer(invocation -> ((Supplier<?>) invocation.getArgument(2)).get());
+
+      val result = (CompletableFuture<?>) underTest.orchestrate(handler, cmd);
+      pending.complete(CommandValueResponse.empty());
+
+      Assertions.assertNotNull(result.join());
+      verify(metrics).timedCommandAsync(any(), eq(0), any());
+      verify(metrics, never()).timedCommand(any(), anyInt(), any());
+    }
+
+    @Test
+    void startsQueuedPartitionOffTheCompletingThread() throws Exception {
+      when(metrics.timedCommandAsync(any(), anyInt(), any()))
+          .thenAnswer(invocation -> ((Supplier<?>) invocation.getArgument(2)).get());
+      val partitioned = new PartitionedHandler();
+
+      val first =
+          (CompletableFuture<?>) underTest.orchestrate(partitioned, new PartitionedCommand());
+      val second =
+          (CompletableFuture<?>) underTest.orchestrate(partitioned, new PartitionedCommand());
+      Assertions.assertEquals(1, partitioned.verifyingThreads.size());
+      Assertions.assertFalse(second.isDone());
+
+      val completer = new Thread(() -> partitioned.pending.complete(null), "completer");
+      completer.start();
+      completer.join();
+
+      first.get(5, TimeUnit.SECONDS);
+      second.get(5, TimeUnit.SECONDS);
+      Assertions.assertEquals(2, partitioned.verifyingThreads.size());
+      Assertions.assertNotEquals("completer", partitioned.verifyingThreads.get(1));
+    }
+
+    @PartitionedBy("aggregateId")
+    class PartitionedCommand implements Command {
+      final String aggregateId = "a";
+    }
+
+    class PartitionedHandler implements AsyncCommandHandler<PartitionedCommand> {
+      final CompletableFuture<Void> pending = new CompletableFuture<>();
+      final List<String> verifyingThreads = new CopyOnWriteArrayList<>();
+
+      @Override
+      public void verify(@NonNull PartitionedCommand cmd) throws CommandVerificationException {
+        verifyingThreads.add(Thread.currentThread().getName());
+      }
+
+      @Override
+      public @NonNull CompletableFuture<Void> handle(@NonNull PartitionedCommand cmd) {
+        return verifyingThreads.size() == 1 ? pending : CompletableFuture.completedFuture(null);
+      }
+    }
+
+    @Test
+    void retriesWithCallersDeadlineWhenCompletedOnForeignThread() throws Exception {
+      when(metrics.timedCommandAsync(any(), anyInt(), any()))
+          .thenAnswer(invocation -> ((Supplier<?>) invocation.getArgument(2)).get());
+      val retrying = new RetryingHandler();
+
+      val result = (CompletableFuture<?>) underTest.orchestrate(retrying, cmd);
+      val completer =
+          new Thread(
+              () -> {
+                try (val scope = DeadlineContext.within(1, TimeUnit.HOURS)) {
+                  retrying.pending.completeExceptionally(new IllegalStateException());
+                }
+              },
+              "completer");
+      completer.start();
+      completer.join();
+
+      Assertions.assertNotNull(result.get(5, TimeUnit.SECONDS));
+      Assertions.assertEquals(2, retrying.remainingNanos.size());
+      val remaining = retrying.remainingNanos.get(1);
+      Assertions.assertNotNull(remaining);
+      Assertions.assertTrue(remaining <= TimeUnit.MINUTES.toNanos(1));
+    }
+
+    @Deadline(millis = 60_000)
+    @RetryConfiguration(maxAttempts = 2, interval = 1)
+    class RetryingHandler implements AsyncRespondingCommandHandler<FooCommand, String> {
+      final CompletableFuture<CommandValueResponse<String>> pending = new CompletableFuture<>();
+      final List<Long> remainingNanos = new CopyOnWriteArrayList<>();
+
+      @Override
+      public void verify(@NonNull FooCommand cmd) throws CommandVerificationException {}
+
+      @Override
+      public @NonNull CompletableFuture<CommandValueResponse<String>> handle(
+          @NonNull FooCommand cmd) {
+        remainingNanos.add(DeadlineContext.isPresent() ? DeadlineContext.remainingNanos() : null);
+        return remainingNanos.size() == 1
+            ? pending
+            : CompletableFuture.completedFuture(CommandValueResponse.of(null, "foo"));
+      }
+    }
+
+    @Test
+    void holdsBulkheadSlotUntilCompletion() {
+      val limited = new LimitedHandler();
+      val descriptor = underTest.describe(limited);
+
+      val first = underTest.processAsync(descriptor, limited, cmd, () -> limited.handle(cmd));
+      val rejected = underTest.processAsync(descriptor, limited, cmd, () -> limited.handle(cmd));
+
+      val e = Assertions.assertThrows(ExecutionException.class, rejected::get);
+      Assertions.assertInstanceOf(CommandRejectedException.class, e.getCause());
+      verify(metrics).logRejected(LimitedHandler.class.getName());
+      verify(metrics).registerBulkhead(eq(LimitedHandler.class.getName()), any(), any());
+
+      pending.complete(CommandValueResponse.empty());
+      Assertions.assertNotNull(first.join());
+      Assertions.assertNotNull(
+          underTest.processAsync(descriptor, limited, cmd, () -> limited.handle(cmd)).join());
+    }
+
+    @Test
+    void failsFastOnceDeadlineHasPassed() {
+      try (val scope = DeadlineContext.within(0, TimeUnit.MILLISECONDS)) {
+        val result = process();
+
+        val e = Assertions.assertThrows(ExecutionException.class, result::get);
+        Assertions.assertInstanceOf(CommandTimeoutException.class, e.getCause());
+      }
+      verify(handler, never()).handle(cmd);
+    }
+
+    @Bulkhead(maxConcurrent = 1)
+    class LimitedHandler implements AsyncRespondingCommandHandler<FooCommand, String> {
+      @Override
+      public void verify(@NonNull FooCommand cmd) throws CommandVerificationException {}
+
+      @Override
+      public @NonNull CompletableFuture<CommandValueResponse<String>> handle(
+          @NonNull FooCommand cmd) {
+        return pending;
+      }
+    }
+  }
+
+  @Nested
+  class WhenOrchestratingIdempotentCommands {
+
+    @Mock(answer = Answers.RETURNS_DEEP_STUBS, lenient = true)
+    private ProceedingJoinPoint joinPoint;
+
+    private final TokenCommandHandler<PaymentCommand> handler =
+        spy(
+            new TokenCommandHandler<PaymentCommand>() {
+              @Override
+              public void verify(@NonNull PaymentCommand cmd) throws CommandVerificationException {}
+
+              @Override
+              public @NonNull CommandTokenResponse handle(@NonNull PaymentCommand cmd)
+                  throws CommandHandlingException {
+                return CommandTokenResponse.of(StateToken.random());
+              }
+            });
+
+    private CommandHandlerOrchestrationAspect idempotent;
+
+    @BeforeEach
+    void setup() throws Throwable {
+      idempotent =
+          new CommandHandlerOrchestrationAspect(
+              validator, metrics, new InMemoryIdempotencyStore(10, Duration.ofMinutes(1)));
+      when(joinPoint.getTarget()).thenReturn(handler);
+      when(joinPoint.proceed())
+          .thenAnswer(invocation -> handler.handle((PaymentCommand) joinPoint.getArgs()[0]));
+    }
+
+    private Object send(Command cmd) {
+      when(joinPoint.getArgs()).thenReturn(new Object[] {cmd});
+      return idempotent.process(joinPoint);
+    }
+
+    @Test
+    void returnsStoredResponseForDuplicates() {
+      val cmd = new PaymentCommand("abc");
+
+      val first = send(cmd);
+      val second = send(new PaymentCommand("abc"));
+
+      Assertions.assertSame(first, second);
+      verify(handler, times(1)).verify(cmd);
+      verify(handler, times(1)).handle(cmd);
+    }
+
+    @Test
+    void executesCommandsWithDifferentKeys() {
+      val first = send(new PaymentCommand("abc"));
+      val second = send(new PaymentCommand("def"));
+
+      Assertions.assertNotSame(first, second);
+      verify(handler, times(2)).handle(any());
+    }
+
+    @Test
+    void doesNotStoreFailures() {
+      val cmd = new PaymentCommand("abc");
+      doThrow(new IllegalStateException("flaky")).doCallRealMethod().when(handler).handle(cmd);
+
+      Assertions.assertThrows(CommandHandlingException.class, () -> send(cmd));
+      Assertions.assertNotNull(send(cmd));
+      verify(handler, times(2)).handle(cmd);
+    }
+
+    @Test
+    void executesEveryTimeWithoutStore() {
+      val cmd = new PaymentCommand("abc");
+      when(joinPoint.getArgs()).thenReturn(new Object[] {cmd});
+
+      underTest.process(joinPoint);
+      underTest.process(joinPoint);
+
+      verify(handler, times(2)).handle(cmd);
+    }
+
+    class PaymentCommand implements IdempotentCommand {
+      private final String key;
+
+      PaymentCommand(String key) {
+        this.key = key;
+      }
+
+      @Override
+      public @NonNull String getIdempotencyKey() {
+        return key;
+      }
+
+      @Override
+      public boolean equals(Object o) {
+        return o instanceof PaymentCommand && ((PaymentCommand) o).key.equals(key);
+      }
+
+      @Override
+      public int hashCode() {
+        return key.hashCode();
+      }
+    }
+  }
+
+  @Nested
+  class WhenObserving {
+    private final List<Observation.Context> stopped = new ArrayList<>();
+
+    @Mock TokenCommandHandler<FooCommand> handler;
+
+    @Test
+    void observesEveryInvocation() {
+      ObservationRegistry registry = ObservationRegistry.create();
+      registry
+          .observationConfig()
+          .observationHandler(
+              new ObservationHandler<Observation.Context>() {
+                @Override
+                public boolean supportsContext(Observation.Context context) {
+                  return true;
+                }
+
+                @Override
+                public void onStop(Observation.Context context) {
+                  stopped.add(context);
+                }
+              });
+      val observed = new CommandHandlerOrchestrationAspect(validator, metrics, null, registry);
+      when(metrics.timedCommand(any(), anyInt(), any()))
+          .thenAnswer(invocation -> ((Supplier<?>) invocation.getArgument(2)).get());
+      when(handler.handle(any())).thenReturn(CommandTokenResponse.empty());
+
+      observed.orchestrate(handler, new FooCommand("bar"));
+
+      Assertions.assertEquals(1, stopped.size());
+      val context = stopped.get(0);
+      Assertions.assertEquals(HandlerObservations.COMMAND_OBSERVATION_NAME, context.getName());
+      Assertions.assertEquals(
+          handler.getClass().getName(), context.getLowCardinalityKeyValue("class").getValue());
+      Assertions.assertEquals("success", context.getLowCardinalityKeyValue("outcome").getValue());
+      Assertions.assertEquals(
+          new FooCommand("bar").toLogString(),
+          context.getHighCardinalityKeyValue(HandlerObservations.COMMAND_KEY).getValue());
+    }
+
+    class FooCommand implements Command {
+      private final String name;
+
+      FooCommand(String name) {
+        this.name = name;
+      }
+    }
+  }
 }
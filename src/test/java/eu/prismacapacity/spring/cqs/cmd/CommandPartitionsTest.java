@@ -0,0 +1,217 @@
+/*
+ * Copyright © 2026 PRISMA European Capacity Platform GmbH 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.prismacapacity.spring.cqs.cmd;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import eu.prismacapacity.spring.cqs.deadline.DeadlineContext;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import lombok.AllArgsConstructor;
+import lombok.val;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class CommandPartitionsTest {
+  private final ExecutorService executor =
+      Executors.newSingleThreadExecutor(r -> new Thread(r, "partitions-test"));
+  private final CommandPartitions uut = new CommandPartitions(executor);
+
+  @PartitionedBy("aggregateId")
+  @AllArgsConstructor
+  static class AggregateCommand implements Command {
+    String aggregateId;
+  }
+
+  static class PlainCommand implements Command {}
+
+  @PartitionedBy("missing")
+  static class MisconfiguredCommand implements Command {}
+
+  @AfterEach
+  void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  void mapsEqualValuesToSameKey() {
+    val key = uut.keyOf(new AggregateCommand("a"));
+
+    assertNotNull(key);
+    assertEquals(key, uut.keyOf(new AggregateCommand("a")));
+    assertNotEquals(key, uut.keyOf(new AggregateCommand("b")));
+  }
+
+  @Test
+  void doesNotPartitionWithoutKey() {
+    assertNull(uut.keyOf(new PlainCommand()));
+    assertNull(uut.keyOf(new AggregateCommand(null)));
+  }
+
+  @Test
+  void failsOnMissingField() {
+    assertThrows(IllegalStateException.class, () -> uut.keyOf(new MisconfiguredCommand()));
+  }
+
+  @Test
+  void serializesSameKey() throws Exception {
+    val key = uut.keyOf(new AggregateCommand("a"));
+    val entered = new CountDownLatch(1);
+    val release = new CountDownLatch(1);
+
+    val first =
+        CompletableFuture.supplyAsync(
+            () ->
+                uut.serialize(
+                    key,
+                    () -> {
+                      entered.countDown();
+                      await(release);
+                      return "first";
+                    }));
+    assertTrue(entered.await(5, TimeUnit.SECONDS));
+    val waiting = new AtomicReference<Thread>();
+    val second =
+        CompletableFuture.supplyAsync(
+            () -> {
+              waiting.set(Thread.currentThread());
+              return uut.serialize(key, () -> "second");
+            });
+
+    awaitParked(waiting);
+    assertFalse(second.isDone());
+
+    release.countDown();
+    assertEquals("first", first.get(5, TimeUnit.SECONDS));
+    assertEquals("second", second.get(5, TimeUnit.SECONDS));
+    assertEquals(0, uut.size());
+  }
+
+  @Test
+  void givesUpWaitingAtDeadline() throws Exception {
+    val key = uut.keyOf(new AggregateCommand("a"));
+    val entered = new CountDownLatch(1);
+    val release = new CountDownLatch(1);
+
+    val first =
+        CompletableFuture.supplyAsync(
+            () ->
+                uut.serialize(
+                    key,
+                    () -> {
+                      entered.countDown();
+                      await(release);
+                      return "first";
+                    }));
+    assertTrue(entered.await(5, TimeUnit.SECONDS));
+
+    try (val scope = DeadlineContext.within(50, TimeUnit.MILLISECONDS)) {
+      assertThrows(CommandTimeoutException.class, () -> uut.serialize(key, () -> "second"));
+    }
+    assertEquals(1, uut.size());
+
+    release.countDown();
+    assertEquals("first", first.get(5, TimeUnit.SECONDS));
+    assertEquals(0, uut.size());
+  }
+
+  @Test
+  void doesNotSerializeDifferentKeys() throws Exception {
+    val entered = new CountDownLatch(1);
+    val release = new CountDownLatch(1);
+
+    val first =
+        CompletableFuture.supplyAsync(
+            () ->
+                uut.serialize(
+                    uut.keyOf(new AggregateCommand("a")),
+                    () -> {
+                      entered.countDown();
+                      await(release);
+                      return "first";
+                    }));
+    assertTrue(entered.await(5, TimeUnit.SECONDS));
+
+    assertEquals("b", uut.serialize(uut.keyOf(new AggregateCommand("b")), () -> "b"));
+
+    release.countDown();
+    assertEquals("first", first.get(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  void chainsAsynchronousExecutions() {
+    val key = uut.keyOf(new AggregateCommand("a"));
+    val pending = new CompletableFuture<String>();
+
+    val first = uut.serializeAsync(key, () -> pending);
+    val second = uut.serializeAsync(key, () -> CompletableFuture.completedFuture("second"));
+    assertFalse(second.isDone());
+
+    pending.completeExceptionally(new IllegalStateException());
+    assertTrue(first.isCompletedExceptionally());
+    assertEquals("second", second.join());
+    assertEquals(0, uut.size());
+  }
+
+  @Test
+  void startsQueuedExecutionOnExecutorWithDeadlineOfCaller() throws Exception {
+    val key = uut.keyOf(new AggregateCommand("a"));
+    val pending = new CompletableFuture<String>();
+    val thread = new AtomicReference<String>();
+    val deadline = new AtomicReference<Boolean>();
+
+    uut.serializeAsync(key, () -> pending);
+    CompletableFuture<String> second;
+    try (val scope = DeadlineContext.within(1, TimeUnit.MINUTES)) {
+      second =
+          uut.serializeAsync(
+              key,
+              () -> {
+                thread.set(Thread.currentThread().getName());
+                deadline.set(DeadlineContext.isPresent());
+                return CompletableFuture.completedFuture("second");
+              });
+    }
+
+    CompletableFuture.runAsync(() -> pending.complete("first")).join();
+
+    assertEquals("second", second.get(5, TimeUnit.SECONDS));
+    assertEquals("partitions-test", thread.get());
+    assertTrue(deadline.get());
+  }
+
+  private static void awaitParked(AtomicReference<Thread> thread) throws InterruptedException {
+    long until = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (thread.get() == null || thread.get().getState() != Thread.State.WAITING) {
+      if (System.nanoTime() > until) {
+        fail("thread did not block");
+      }
+      Thread.yield();
+    }
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright © 2026 PRISMA European Capacity Platform GmbH 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.prismacapacity.spring.cqs.deadline;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import lombok.val;
+import org.junit.jupiter.api.Test;
+
+class DeadlineContextTest {
+
+  @Test
+  void hasNoDeadlineByDefault() {
+    assertFalse(DeadlineContext.isPresent());
+    assertFalse(DeadlineContext.isExpired());
+    assertEquals(Long.MAX_VALUE, DeadlineContext.remainingNanos());
+  }
+
+  @Test
+  void restoresPreviousDeadline() {
+    try (val outer = DeadlineContext.within(1, TimeUnit.MINUTES)) {
+      val remaining = DeadlineContext.remainingNanos();
+      try (val inner = DeadlineContext.within(1, TimeUnit.SECONDS)) {
+        assertTrue(DeadlineContext.remainingNanos() <= TimeUnit.SECONDS.toNanos(1));
+      }
+      assertTrue(DeadlineContext.remainingNanos() > TimeUnit.SECONDS.toNanos(1));
+      assertTrue(DeadlineContext.remainingNanos() <= remaining);
+    }
+    assertFalse(DeadlineContext.isPresent());
+  }
+
+  @Test
+  void keepsEarlierDeadline() {
+    try (val outer = DeadlineContext.within(1, TimeUnit.SECONDS)) {
+      try (val inner = DeadlineContext.within(1, TimeUnit.MINUTES)) {
+        assertTrue(DeadlineContext.remainingNanos() <= TimeUnit.SECONDS.toNanos(1));
+      }
+    }
+  }
+
+  @Test
+  void restoresCapturedDeadlineReplacingCurrentOne() {
+    final Long captured;
+    try (val scope = DeadlineContext.within(1, TimeUnit.SECONDS)) {
+      captured = DeadlineContext.capture();
+    }
+    try (val other = DeadlineContext.within(1, TimeUnit.HOURS)) {
+      try (val restored = DeadlineContext.restore(captured)) {
+        assertTrue(DeadlineContext.remainingNanos() <= TimeUnit.SECONDS.toNanos(1));
+      }
+      try (val restored = DeadlineContext.restore(null)) {
+        assertFalse(DeadlineContext.isPresent());
+      }
+      assertTrue(DeadlineContext.remainingNanos() > TimeUnit.SECONDS.toNanos(1));
+    }
+    assertFalse(DeadlineContext.isPresent());
+  }
+
+  @Test
+  void expires() {
+    try (val scope = DeadlineContext.within(0, TimeUnit.MILLISECONDS)) {
+      assertTrue(DeadlineContext.isExpired());
+    }
+  }
+
+  @Test
+  void propagatesToOtherThread() throws Exception {
+    Callable<Boolean> propagated;
+    try (val scope = DeadlineContext.within(1, TimeUnit.MINUTES)) {
+      propagated = DeadlineContext.propagate(DeadlineContext::isPresent);
+    }
+
+    val thread = new Thread[1];
+    val result = new boolean[2];
+    thread[0] =
+        new Thread(
+            () -> {
+              try {
+                result[0] = propagated.call();
+                result[1] = DeadlineContext.isPresent();
+              } catch (Exception e) {
+                throw new IllegalStateException(e);
+              }
+            });
+    thread[0].start();
+    thread[0].join();
+
+    assertTrue(result[0]);
+    assertFalse(result[1]);
+  }
+}
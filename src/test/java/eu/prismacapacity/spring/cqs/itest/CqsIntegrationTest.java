@@ -1,5 +1,5 @@
 /*
- * Copyright © 2023-2024 PRISMA European Capacity Platform GmbH 
+ * Copyright © 2023-2026 PRISMA European Capacity Platform GmbH 
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,6 +17,7 @@ package eu.prismacapacity.spring.cqs.itest;
 
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
+import eu.prismacapacity.spring.cqs.bus.CqsBus;
 import eu.prismacapacity.spring.cqs.cmd.*;
 import eu.prismacapacity.spring.cqs.cmd.Logging;
 import eu.prismacapacity.spring.cqs.query.*;
@@ -34,6 +35,7 @@ import org.springframework.boot.test.context.SpringBootTest;
 public class CqsIntegrationTest {
   @Autowired MyTestQueryHandler myTestQueryHandler;
   @Autowired MyTestCommandHandler myTestCommandHandler;
+  @Autowired CqsBus bus;
 
   @Nested
   class QueryHandler {
@@ -193,4 +195,41 @@ public class CqsIntegrationTest {
       Assertions.assertThat(renderedCommand).contains("age=119");
     }
   }
+
+  @Nested
+  class Bus {
+    @Test
+    void asksQuery() {
+      Boolean result = bus.ask(new MyTestQuery(1));
+      Assertions.assertThat(result).isTrue();
+    }
+
+    @Test
+    void validatesQuery() {
+      assertThatThrownBy(() -> bus.ask(new MyTestQuery(0)))
+          .isInstanceOf(QueryValidationException.class);
+    }
+
+    @Test
+    void sendsCommand() {
+      LogCaptor logCaptor = LogCaptor.forClass(MyTestCommandHandler.class);
+      Object result = bus.send(new MyTestCommand(27));
+
+      Assertions.assertThat(result).isNull();
+      Assertions.assertThat(logCaptor.getInfoLogs())
+          .anySatisfy(l -> Assertions.assertThat(l).contains("MyTestCommand"));
+    }
+
+    @Test
+    void verifiesCommand() {
+      assertThatThrownBy(() -> bus.send(new MyTestCommand(118)))
+          .isInstanceOf(CommandVerificationException.class);
+    }
+
+    @Test
+    void failsForUnknownCommand() {
+      assertThatThrownBy(() -> bus.send(new Command() {}))
+          .isInstanceOf(IllegalArgumentException.class);
+    }
+  }
 }
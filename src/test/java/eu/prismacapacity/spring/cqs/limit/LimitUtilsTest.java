@@ -0,0 +1,89 @@
+/*
+ * Copyright © 2026 PRISMA European Capacity Platform GmbH 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.prismacapacity.spring.cqs.limit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.val;
+import org.junit.jupiter.api.Test;
+
+class LimitUtilsTest {
+
+  @Test
+  void releasesAcquiredPermitsOnRejection() throws Exception {
+    val open = new SemaphoreBulkhead(1, 0);
+    val full = new SemaphoreBulkhead(1, 0);
+    full.tryAcquire();
+
+    assertNull(LimitUtils.tryAcquireAll(Arrays.asList(open, full)));
+    assertEquals(0, open.getInFlight());
+  }
+
+  @Test
+  void releasesAllPermits() throws Exception {
+    val first = new SemaphoreBulkhead(1, 0);
+    val second = new SemaphoreBulkhead(1, 0);
+
+    val permit = LimitUtils.tryAcquireAll(Arrays.asList(first, second));
+    assertEquals(1, first.getInFlight());
+    assertEquals(1, second.getInFlight());
+
+    permit.release();
+    assertEquals(0, first.getInFlight());
+    assertEquals(0, second.getInFlight());
+  }
+
+  @Test
+  void rejectionByBulkheadDoesNotShrinkAdaptiveLimit() throws Exception {
+    // every reading of the clock advances it, so that dropped permits would take a tiny sample
+    val now = new AtomicLong();
+    val vegas = new VegasLimiter(20, 1, 20, now::incrementAndGet);
+    val bulkhead = new SemaphoreBulkhead(12, 0);
+    val limiters = Arrays.<Limiter>asList(vegas, bulkhead);
+
+    for (int round = 0; round < 5; round++) {
+      List<Limiter.Permit> permits = new ArrayList<>();
+      int rejected = 0;
+      for (int i = 0; i < 20; i++) {
+        val permit = LimitUtils.tryAcquireAll(limiters);
+        if (permit == null) {
+          rejected++;
+        } else {
+          permits.add(permit);
+        }
+      }
+      assertEquals(8, rejected);
+      now.addAndGet(10_000_000);
+      permits.forEach(Limiter.Permit::release);
+    }
+
+    assertEquals(20, vegas.getLimit());
+    assertEquals(0, vegas.getInFlight());
+  }
+
+  @Test
+  void keepsPresentLimitersInOrder() {
+    val bulkhead = new SemaphoreBulkhead(1, 0);
+
+    assertEquals(
+        Arrays.asList(bulkhead), LimitUtils.present(Optional.empty(), Optional.of(bulkhead)));
+  }
+}
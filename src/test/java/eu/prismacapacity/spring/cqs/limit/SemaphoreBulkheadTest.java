@@ -0,0 +1,70 @@
+/*
+ * Copyright © 2026 PRISMA European Capacity Platform GmbH 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.prismacapacity.spring.cqs.limit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import lombok.val;
+import org.junit.jupiter.api.Test;
+
+class SemaphoreBulkheadTest {
+
+  @Test
+  void rejectsRightAwayWithoutWait() throws Exception {
+    val uut = new SemaphoreBulkhead(1, 0);
+
+    val permit = uut.tryAcquire();
+    assertNotNull(permit);
+    assertEquals(1, uut.getInFlight());
+    assertNull(uut.tryAcquire());
+
+    permit.release();
+    assertEquals(0, uut.getInFlight());
+    assertNotNull(uut.tryAcquire());
+  }
+
+  @Test
+  void waitsForSlot() throws Exception {
+    val uut = new SemaphoreBulkhead(1, 5_000);
+    val permit = uut.tryAcquire();
+
+    val waiting =
+        CompletableFuture.supplyAsync(
+            () -> {
+              try {
+                return uut.tryAcquire();
+              } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+              }
+            });
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (uut.getQueued() == 0 && System.nanoTime() < deadline) {
+      Thread.sleep(1);
+    }
+    assertEquals(1, uut.getQueued());
+
+    permit.release();
+    assertNotNull(waiting.get(5, TimeUnit.SECONDS));
+    assertEquals(0, uut.getQueued());
+  }
+
+  @Test
+  void rejectsInvalidLimit() {
+    assertThrows(IllegalArgumentException.class, () -> new SemaphoreBulkhead(0, 0));
+  }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright © 2026 PRISMA European Capacity Platform GmbH 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.prismacapacity.spring.cqs.limit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.val;
+import org.junit.jupiter.api.Test;
+
+class VegasLimiterTest {
+  private final AtomicLong now = new AtomicLong();
+
+  /** runs as many invocations concurrently as allowed, each taking the given time */
+  private void saturate(VegasLimiter uut, long nanos) {
+    List<Limiter.Permit> permits = new ArrayList<>();
+    Limiter.Permit permit;
+    while ((permit = uut.tryAcquire()) != null) {
+      permits.add(permit);
+    }
+    now.addAndGet(nanos);
+    permits.forEach(Limiter.Permit::release);
+  }
+
+  @Test
+  void rejectsBeyondLimit() {
+    val uut = new VegasLimiter(2, 1, 10, now::get);
+
+    assertNotNull(uut.tryAcquire());
+    assertNotNull(uut.tryAcquire());
+    assertNull(uut.tryAcquire());
+    assertEquals(2, uut.getInFlight());
+  }
+
+  @Test
+  void growsWhileLatencyIsStable() {
+    val uut = new VegasLimiter(10, 1, 1000, now::get);
+
+    for (int i = 0; i < 5; i++) {
+      saturate(uut, 1_000_000);
+    }
+
+    assertTrue(uut.getLimit() > 10);
+  }
+
+  @Test
+  void shrinksWhenLatencyRises() {
+    val uut = new VegasLimiter(100, 1, 1000, now::get);
+    saturate(uut, 1_000_000);
+
+    for (int i = 0; i < 5; i++) {
+      saturate(uut, 10_000_000);
+    }
+
+    assertTrue(uut.getLimit() < 100);
+  }
+
+  @Test
+  void staysWithinBounds() {
+    val uut = new VegasLimiter(5, 2, 8, now::get);
+    for (int i = 0; i < 50; i++) {
+      saturate(uut, 1_000_000);
+    }
+    assertEquals(8, uut.getLimit());
+
+    for (int i = 0; i < 10; i++) {
+      saturate(uut, 1_000_000_000L);
+    }
+    assertEquals(2, uut.getLimit());
+  }
+}
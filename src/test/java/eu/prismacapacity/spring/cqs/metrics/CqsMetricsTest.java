@@ -1,5 +1,5 @@
 /*
- * Copyright © 2022 PRISMA European Capacity Platform GmbH 
+ * Copyright © 2022-2026 PRISMA European Capacity Platform GmbH 
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -18,13 +18,27 @@ package eu.prismacapacity.spring.cqs.metrics;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
+import eu.prismacapacity.spring.cqs.cmd.CommandTimeoutException;
+import eu.prismacapacity.spring.cqs.cmd.CommandValidationException;
+import eu.prismacapacity.spring.cqs.query.QueryRejectedException;
+import eu.prismacapacity.spring.cqs.retry.RetryObserver;
 import io.micrometer.core.instrument.*;
-import java.util.function.Supplier;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.HashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 import lombok.val;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
 import org.mockito.*;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.StandardEnvironment;
 
 @ExtendWith(MockitoExtension.class)
 class CqsMetricsTest {
@@ -57,7 +71,7 @@ class CqsMetricsTest {
   public void timedCommand() {
     val timer = mock(Timer.class);
     when(registry.timer(any(), any(Tags.class))).thenReturn(timer);
-    when(timer.record(ArgumentMatchers.<Supplier<Boolean>>any())).thenReturn(true);
+    when(registry.counter(any(), any(Tags.class))).thenReturn(mock(Counter.class));
 
     val uut = new CqsMetrics(registry, "foo", "bar", "baz");
 
@@ -65,15 +79,19 @@ class CqsMetricsTest {
 
     assertTrue(result);
 
-    verify(registry).timer("baz", Tags.of(Tag.of("class", "clazz"), Tag.of("retryCount", "1")));
-    verify(timer).record(ArgumentMatchers.<Supplier<Boolean>>any());
+    verify(registry)
+        .timer(
+            "baz",
+            Tags.of(
+                Tag.of("class", "clazz"), Tag.of("retryCount", "1"), Tag.of("outcome", "success")));
+    verify(timer).record(anyLong(), eq(TimeUnit.NANOSECONDS));
   }
 
   @Test
   public void timedQuery() {
     val timer = mock(Timer.class);
     when(registry.timer(any(), any(Tags.class))).thenReturn(timer);
-    when(timer.record(ArgumentMatchers.<Supplier<Boolean>>any())).thenReturn(true);
+    when(registry.counter(any(), any(Tags.class))).thenReturn(mock(Counter.class));
 
     val uut = new CqsMetrics(registry, "foo", "bar", "baz");
 
@@ -81,7 +99,302 @@ class CqsMetricsTest {
 
     assertTrue(result);
 
-    verify(registry).timer("foo", Tags.of(Tag.of("class", "clazz"), Tag.of("retryCount", "2")));
-    verify(timer).record(ArgumentMatchers.<Supplier<Boolean>>any());
+    verify(registry)
+        .timer(
+            "foo",
+            Tags.of(
+                Tag.of("class", "clazz"), Tag.of("retryCount", "2"), Tag.of("outcome", "success")));
+    verify(timer).record(anyLong(), eq(TimeUnit.NANOSECONDS));
+  }
+
+  @Test
+  public void timedCommandAsync() {
+    val registry = new SimpleMeterRegistry();
+    val uut = new CqsMetrics(registry, "foo", "bar", "baz");
+    val future = new CompletableFuture<Boolean>();
+
+    val result = uut.timedCommandAsync("clazz", 0, () -> future);
+
+    assertNull(registry.find("baz").tags("class", "clazz").timer());
+
+    future.complete(true);
+
+    assertTrue(result.join());
+    val timer =
+        registry.get("baz").tags("class", "clazz", "retryCount", "0", "outcome", "success").timer();
+    assertEquals(1, timer.count());
+  }
+
+  @Test
+  public void tagsOutcome() {
+    val registry = new SimpleMeterRegistry();
+    val uut = new CqsMetrics(registry, "foo", "bar", "baz");
+
+    uut.timedCommand("clazz", 0, () -> true);
+    assertThrows(
+        CommandValidationException.class,
+        () ->
+            uut.timedCommand(
+                "clazz",
+                0,
+                () -> {
+                  throw new CommandValidationException("invalid", new RuntimeException());
+                }));
+    assertThrows(
+        QueryRejectedException.class,
+        () ->
+            uut.timedQuery(
+                "clazz",
+                0,
+                () -> {
+                  throw new QueryRejectedException("full");
+                }));
+    val failed = new CompletableFuture<Boolean>();
+    failed.completeExceptionally(new CommandTimeoutException("late"));
+    uut.timedCommandAsync("clazz", 1, () -> failed);
+
+    assertEquals(
+        1, registry.get("baz").tags("class", "clazz", "outcome", "success").timer().count());
+    assertEquals(
+        1,
+        registry.get("baz").tags("class", "clazz", "outcome", "validation_failed").timer().count());
+    assertEquals(
+        1,
+        registry
+            .get("baz")
+            .tags("class", "clazz", "retryCount", "1", "outcome", "timeout")
+            .timer()
+            .count());
+    assertEquals(
+        1, registry.get("foo").tags("class", "clazz", "outcome", "rejected").timer().count());
+    assertEquals(
+        1,
+        registry
+            .get(CqsMetrics.COMMAND_OUTCOME_METRIC_NAME)
+            .tags("class", "clazz", "outcome", "validation_failed")
+            .counter()
+            .count());
+    assertEquals(
+        0,
+        registry
+            .get(CqsMetrics.COMMAND_OUTCOME_METRIC_NAME)
+            .tags("class", "clazz", "outcome", "handling_failed")
+            .counter()
+            .count());
+    assertEquals(
+        1,
+        registry
+            .get(CqsMetrics.QUERY_OUTCOME_METRIC_NAME)
+            .tags("class", "clazz", "outcome", "rejected")
+            .counter()
+            .count());
+  }
+
+  @Test
+  public void logRetries() {
+    val registry = new SimpleMeterRegistry();
+    val uut = new CqsMetrics(registry, "foo", "bar", "baz");
+
+    uut.logRetries("clazz", 1, 0, RetryObserver.Outcome.SUCCEEDED);
+    uut.logRetries("clazz", 4, 60_000_000, RetryObserver.Outcome.EXHAUSTED);
+    uut.logRetries("clazz", 1, 0, RetryObserver.Outcome.NOT_RETRYABLE);
+
+    val attempts = registry.get(CqsMetrics.RETRY_ATTEMPTS_METRIC_NAME).tags("class", "clazz");
+    assertEquals(3, attempts.summary().count());
+    assertEquals(6, attempts.summary().totalAmount());
+    assertEquals(
+        60,
+        registry
+            .get(CqsMetrics.RETRY_BACKOFF_METRIC_NAME)
+            .timer()
+            .totalTime(TimeUnit.MILLISECONDS));
+    assertEquals(1, registry.get(CqsMetrics.RETRY_EXHAUSTED_METRIC_NAME).counter().count());
+    assertEquals(1, registry.get(CqsMetrics.RETRY_SKIPPED_METRIC_NAME).counter().count());
+  }
+
+  static Stream<Arguments> cachedMeters() {
+    return Stream.of(
+        meters(
+            "retries",
+            m -> {
+              m.logRetries("clazz", 1, 0, RetryObserver.Outcome.SUCCEEDED);
+              m.logRetries("clazz", 4, 0, RetryObserver.Outcome.EXHAUSTED);
+              m.logRetries("clazz", 1, 0, RetryObserver.Outcome.NOT_RETRYABLE);
+            }),
+        meters(
+            "cache",
+            m -> {
+              m.logCacheHit("clazz");
+              m.logCacheMiss("clazz");
+            }),
+        meters("coalesced", m -> m.logCoalesced("clazz")),
+        meters(
+            "batch",
+            m -> {
+              m.logBatch("clazz", 2);
+              m.logBatchWait("clazz", 10);
+            }),
+        meters(
+            "hedge",
+            m -> {
+              m.logHedge("clazz");
+              m.logHedgeWon("clazz");
+            }),
+        meters("rejected", m -> m.logRejected("clazz")));
+  }
+
+  private static Arguments meters(String name, Consumer<CqsMetrics> log) {
+    return Arguments.of(name, log);
+  }
+
+  @ParameterizedTest(name = "{0}")
+  @MethodSource("cachedMeters")
+  public void looksUpMetersOnlyOnce(String name, Consumer<CqsMetrics> log) {
+    when(registry.counter(any(), any(Tags.class))).thenAnswer(i -> mock(Counter.class));
+    when(registry.summary(any(), any(Tags.class))).thenAnswer(i -> mock(DistributionSummary.class));
+    when(registry.timer(any(), any(Tags.class))).thenAnswer(i -> mock(Timer.class));
+
+    val uut = new CqsMetrics(registry, "foo", "bar", "baz");
+    clearInvocations(registry);
+
+    log.accept(uut);
+    int lookups = mockingDetails(registry).getInvocations().size();
+    log.accept(uut);
+
+    assertTrue(lookups > 0);
+    assertEquals(lookups, mockingDetails(registry).getInvocations().size());
+  }
+
+  @Test
+  public void looksUpTimersOnlyOnce() {
+    val timer = mock(Timer.class);
+    when(registry.timer(any(), any(Tags.class))).thenReturn(timer);
+    when(registry.counter(any(), any(Tags.class))).thenReturn(mock(Counter.class));
+
+    val uut = new CqsMetrics(registry, "foo", "bar", "baz");
+
+    uut.timedCommand("clazz", 0, () -> true);
+    uut.timedCommand("clazz", 0, () -> true);
+    uut.timedCommand("clazz", 1, () -> true);
+    uut.timedQuery("clazz", 0, () -> true);
+    uut.timedQuery("clazz", 0, () -> true);
+
+    verify(registry, times(1))
+        .timer(
+            "baz",
+            Tags.of(
+                Tag.of("class", "clazz"), Tag.of("retryCount", "0"), Tag.of("outcome", "success")));
+    verify(registry, times(1))
+        .timer(
+            "baz",
+            Tags.of(
+                Tag.of("class", "clazz"), Tag.of("retryCount", "1"), Tag.of("outcome", "success")));
+    verify(registry, times(1))
+        .timer(
+            "foo",
+            Tags.of(
+                Tag.of("class", "clazz"), Tag.of("retryCount", "0"), Tag.of("outcome", "success")));
+    verify(timer, times(5)).record(anyLong(), eq(TimeUnit.NANOSECONDS));
+  }
+
+  @Test
+  public void logPhase() {
+    val registry = new SimpleMeterRegistry();
+    val uut = new CqsMetrics(registry, "foo", "bar", "baz", true);
+
+    uut.logPhase("clazz", Phase.VERIFICATION, 5_000_000);
+    uut.logPhase("clazz", Phase.VERIFICATION, 5_000_000);
+
+    assertTrue(uut.isPhaseTimingEnabled());
+    val timer =
+        registry
+            .get(CqsMetrics.PHASE_METRIC_NAME)
+            .tags("class", "clazz", "phase", "verification")
+            .timer();
+    assertEquals(2, timer.count());
+    assertEquals(10, timer.totalTime(TimeUnit.MILLISECONDS));
+    assertFalse(new CqsMetrics(registry, "foo", "bar", "baz").isPhaseTimingEnabled());
+  }
+
+  @Test
+  public void logTimeoutWithElapsedTime() {
+    val registry = new SimpleMeterRegistry();
+    val uut = new CqsMetrics(registry, "foo", "bar", "baz");
+
+    uut.logTimeout("clazz", 30_000_000);
+    uut.logTimeout("clazz", 50_000_000);
+    uut.logTimeout("other", 10_000_000);
+
+    assertEquals(2, registry.get("bar").tags("class", "clazz").counter().count());
+    val elapsed =
+        registry.get(CqsMetrics.QUERY_TIMEOUT_ELAPSED_METRIC_NAME).tags("class", "clazz").timer();
+    assertEquals(2, elapsed.count());
+    assertEquals(50, elapsed.max(TimeUnit.MILLISECONDS));
+  }
+
+  @HandlerSlo(p99Millis = 100, buckets = 50)
+  static class SloHandler {}
+
+  @Test
+  public void publishesHandlerSlo() {
+    val registry = new SimpleMeterRegistry();
+    val uut = new CqsMetrics(registry, "foo", "bar", "baz");
+
+    uut.registerSlo("clazz", SloHandler.class.getAnnotation(HandlerSlo.class));
+    uut.timedCommand("clazz", 0, () -> true);
+    uut.timedCommand("other", 0, () -> true);
+
+    val snapshot =
+        registry
+            .get("baz")
+            .tags("class", "clazz", "retryCount", "0", "outcome", "success")
+            .timer()
+            .takeSnapshot();
+    assertEquals(2, snapshot.histogramCounts().length);
+    assertEquals(1, snapshot.percentileValues().length);
+    assertEquals(0.99, snapshot.percentileValues()[0].percentile());
+
+    val other =
+        registry
+            .get("baz")
+            .tags("class", "other", "retryCount", "0", "outcome", "success")
+            .timer()
+            .takeSnapshot();
+    assertEquals(0, other.histogramCounts().length);
+    assertEquals(0, other.percentileValues().length);
+  }
+
+  @Test
+  public void overridesHandlerSloByProperties() {
+    val environment = new StandardEnvironment();
+    val properties = new HashMap<String, Object>();
+    properties.put("cqs.metrics.slo.clazz.buckets", "10,20,30");
+    properties.put("cqs.metrics.slo.clazz.percentiles", "0.5,0.95");
+    properties.put("cqs.metrics.slo.unannotated.buckets", "10");
+    environment.getPropertySources().addFirst(new MapPropertySource("test", properties));
+    val registry = new SimpleMeterRegistry();
+    val uut = new CqsMetrics(registry, "foo", "bar", "baz", false, environment);
+
+    uut.registerSlo("clazz", SloHandler.class.getAnnotation(HandlerSlo.class));
+    uut.timedQuery("clazz", 0, () -> true);
+    uut.timedQuery("unannotated", 0, () -> true);
+
+    val snapshot =
+        registry
+            .get("foo")
+            .tags("class", "clazz", "retryCount", "0", "outcome", "success")
+            .timer()
+            .takeSnapshot();
+    assertEquals(3, snapshot.histogramCounts().length);
+    assertEquals(2, snapshot.percentileValues().length);
+    assertEquals(
+        1,
+        registry
+            .get("foo")
+            .tags("class", "unannotated", "retryCount", "0", "outcome", "success")
+            .timer()
+            .takeSnapshot()
+            .histogramCounts()
+            .length);
   }
 }
@@ -0,0 +1,164 @@
+/*
+ * Copyright © 2026 PRISMA European Capacity Platform GmbH 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.prismacapacity.spring.cqs.metrics;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import eu.prismacapacity.spring.cqs.cmd.Logging;
+import eu.prismacapacity.spring.cqs.query.QueryTimeoutException;
+import io.micrometer.core.instrument.observation.DefaultMeterObservationHandler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationHandler;
+import io.micrometer.observation.ObservationRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
+import org.junit.jupiter.api.Test;
+
+class HandlerObservationsTest {
+  private final List<Observation.Context> stopped = new ArrayList<>();
+  private final ObservationRegistry registry = ObservationRegistry.create();
+
+  {
+    registry
+        .observationConfig()
+        .observationHandler(
+            new ObservationHandler<Observation.Context>() {
+              @Override
+              public boolean supportsContext(Observation.Context context) {
+                return true;
+              }
+
+              @Override
+              public void onStop(Observation.Context context) {
+                stopped.add(context);
+              }
+            });
+  }
+
+  private final HandlerObservations uut = HandlerObservations.of(registry);
+
+  @Test
+  void observesSuccess() {
+    Observation[] current = new Observation[1];
+
+    uut.observe(
+        HandlerObservations.COMMAND_OBSERVATION_NAME,
+        "clazz",
+        1,
+        "FooCommand(id=1)",
+        () -> current[0] = registry.getCurrentObservation());
+
+    assertEquals(1, stopped.size());
+    Observation.Context context = stopped.get(0);
+    assertSame(context, current[0].getContext());
+    assertEquals(HandlerObservations.COMMAND_OBSERVATION_NAME, context.getName());
+    assertEquals("clazz", context.getLowCardinalityKeyValue("class").getValue());
+    assertEquals("1", context.getLowCardinalityKeyValue("retryCount").getValue());
+    assertEquals("success", context.getLowCardinalityKeyValue("outcome").getValue());
+    assertEquals(
+        "FooCommand(id=1)",
+        context.getHighCardinalityKeyValue(HandlerObservations.COMMAND_KEY).getValue());
+    assertNull(context.getError());
+  }
+
+  @Test
+  void observesFailure() {
+    QueryTimeoutException timeout = new QueryTimeoutException(new TimeoutException());
+
+    assertThrows(
+        QueryTimeoutException.class,
+        () ->
+            uut.observe(
+                HandlerObservations.QUERY_OBSERVATION_NAME,
+                "clazz",
+                0,
+                null,
+                () -> {
+                  throw timeout;
+                }));
+
+    Observation.Context context = stopped.get(0);
+    assertEquals("timeout", context.getLowCardinalityKeyValue("outcome").getValue());
+    assertNull(context.getHighCardinalityKeyValue(HandlerObservations.COMMAND_KEY));
+    assertSame(timeout, context.getError());
+  }
+
+  @Test
+  void stopsAsyncObservationOnCompletion() {
+    CompletableFuture<Object> pending = new CompletableFuture<>();
+    uut.observeAsync(HandlerObservations.QUERY_OBSERVATION_NAME, "clazz", 0, null, () -> pending);
+    assertTrue(stopped.isEmpty());
+
+    IllegalStateException failure = new IllegalStateException();
+    pending.completeExceptionally(failure);
+
+    Observation.Context context = stopped.get(0);
+    assertEquals("handling_failed", context.getLowCardinalityKeyValue("outcome").getValue());
+    assertSame(failure, context.getError());
+  }
+
+  @Test
+  void doesNotClashWithHandlerTimers() {
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    CqsMetrics metrics =
+        new CqsMetrics(meterRegistry, "cqs.query", "cqs.query.timeout", "cqs.command");
+    ObservationRegistry observationRegistry = ObservationRegistry.create();
+    observationRegistry
+        .observationConfig()
+        .observationHandler(new DefaultMeterObservationHandler(meterRegistry));
+
+    HandlerObservations.of(observationRegistry)
+        .observe(
+            HandlerObservations.COMMAND_OBSERVATION_NAME,
+            "clazz",
+            0,
+            "FooCommand(id=1)",
+            () -> metrics.timedCommand("clazz", 0, () -> "result"));
+
+    assertEquals(1, meterRegistry.find("cqs.command").tag("class", "clazz").timers().size());
+    assertEquals(
+        1,
+        meterRegistry
+            .get("cqs.command")
+            .tags("class", "clazz", "outcome", "success")
+            .timer()
+            .count());
+    assertEquals(
+        1,
+        meterRegistry
+            .get(HandlerObservations.COMMAND_OBSERVATION_NAME)
+            .tags("class", "clazz", "outcome", "success")
+            .timer()
+            .count());
+    assertNotEquals(Logging.LOG_ATTRIBUTE_COMMAND, HandlerObservations.COMMAND_KEY);
+  }
+
+  @Test
+  void skipsNoopRegistry() {
+    assertSame(HandlerObservations.NONE, HandlerObservations.of(null));
+    assertSame(HandlerObservations.NONE, HandlerObservations.of(ObservationRegistry.NOOP));
+    assertFalse(HandlerObservations.NONE.isEnabled());
+    assertTrue(uut.isEnabled());
+
+    assertEquals(
+        "result",
+        HandlerObservations.NONE.observe(
+            HandlerObservations.QUERY_OBSERVATION_NAME, "clazz", 0, null, () -> "result"));
+  }
+}
@@ -18,15 +18,30 @@ package eu.prismacapacity.spring.cqs.query;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
+import eu.prismacapacity.spring.cqs.deadline.Deadline;
+import eu.prismacapacity.spring.cqs.deadline.DeadlineContext;
+import eu.prismacapacity.spring.cqs.limit.Bulkhead;
+import eu.prismacapacity.spring.cqs.metrics.HandlerSlo;
+import eu.prismacapacity.spring.cqs.metrics.Phase;
 import eu.prismacapacity.spring.cqs.metrics.QueryMetrics;
 import eu.prismacapacity.spring.cqs.retry.RetryConfiguration;
 import jakarta.validation.ConstraintViolation;
 import jakarta.validation.Path;
 import jakarta.validation.Validator;
 import jakarta.validation.metadata.ConstraintDescriptor;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Supplier;
 import lombok.NonNull;
 import lombok.val;
@@ -162,6 +177,27 @@ class QueryHandlerOrchestrationAspectTest {
       verify(handler, times(1)).handle(query);
     }
 
+    @Test
+    void timesPhasesIfEnabled() throws Throwable {
+      when(metrics.isPhaseTimingEnabled()).thenReturn(true);
+      when(joinPoint.proceed()).thenAnswer(invocation -> handler.handle(query));
+
+      underTest.process(joinPoint);
+
+      verify(metrics).logPhase(any(), eq(Phase.VALIDATION), anyLong());
+      verify(metrics).logPhase(any(), eq(Phase.VERIFICATION), anyLong());
+      verify(metrics).logPhase(any(), eq(Phase.EXECUTION), anyLong());
+    }
+
+    @Test
+    void doesNotTimePhasesByDefault() throws Throwable {
+      when(joinPoint.proceed()).thenAnswer(invocation -> handler.handle(query));
+
+      underTest.process(joinPoint);
+
+      verify(metrics, never()).logPhase(any(), any(), anyLong());
+    }
+
     @Test
     void beanValidationFails() throws Throwable {
 
@@ -261,7 +297,7 @@ class QueryHandlerOrchestrationAspectTest {
 
       Assertions.assertThrows(QueryTimeoutException.class, () -> underTest.process(joinPoint));
 
-      verify(metrics).logTimeout();
+      verify(metrics).logTimeout(anyString(), anyLong());
     }
 
     @Test
@@ -274,7 +310,561 @@ class QueryHandlerOrchestrationAspectTest {
               });
       Assertions.assertThrows(QueryTimeoutException.class, () -> underTest.process(joinPoint));
 
-      verify(metrics).logTimeout();
+      verify(metrics).logTimeout(anyString(), anyLong());
+    }
+
+    @Nested
+    class TimeoutBehaviour {
+      @Test
+      void abandonsHandlerOnceTimeoutIsExceeded() throws Throwable {
+        val handler = new SlowQueryHandler();
+        val interrupted = new CountDownLatch(1);
+        handler.onInterrupt = interrupted::countDown;
+        when(joinPoint.getTarget()).thenReturn(handler);
+        when(joinPoint.proceed()).thenAnswer(invocation -> handler.handle(query));
+
+        Assertions.assertThrows(QueryTimeoutException.class, () -> underTest.process(joinPoint));
+
+        verify(metrics).logTimeout(eq(handler.getClass().getName()), anyLong());
+        Assertions.assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+      }
+
+      @Test
+      void returnsResultWithinTimeout() throws Throwable {
+        val handler = new SlowQueryHandler();
+        handler.sleepMillis = 0;
+        when(joinPoint.getTarget()).thenReturn(handler);
+        when(joinPoint.proceed()).thenAnswer(invocation -> handler.handle(query));
+
+        Assertions.assertEquals("done", underTest.process(joinPoint));
+        verify(metrics, never()).logTimeout(anyString(), anyLong());
+      }
+
+      @QueryTimeout(millis = 50)
+      class SlowQueryHandler implements QueryHandler<FooQuery, String> {
+        long sleepMillis = 10_000;
+        Runnable onInterrupt = () -> {};
+
+        @Override
+        public void verify(@NonNull FooQuery query) throws QueryVerificationException {}
+
+        @Override
+        public @NonNull String handle(@NonNull FooQuery query)
+            throws QueryHandlingException, QueryTimeoutException {
+          try {
+            Thread.sleep(sleepMillis);
+          } catch (InterruptedException e) {
+            onInterrupt.run();
+          }
+          return "done";
+        }
+      }
+    }
+
+    @Nested
+    class CacheBehaviour {
+      @Test
+      void answersEqualQueriesFromCache() throws Throwable {
+        val handler = spy(new CachingQueryHandler());
+        when(joinPoint.getTarget()).thenReturn(handler);
+        when(joinPoint.proceed()).thenAnswer(invocation -> handler.handle(query));
+
+        Assertions.assertEquals("cached", underTest.process(joinPoint));
+        Assertions.assertEquals("cached", underTest.process(joinPoint));
+
+        verify(handler, times(1)).handle(query);
+        verify(handler, times(2)).verify(query);
+        verify(metrics).logCacheMiss(anyString());
+        verify(metrics).logCacheHit(anyString());
+      }
+
+      @Test
+      void doesNotCacheFailures() throws Throwable {
+        val handler = new CachingQueryHandler();
+        when(joinPoint.getTarget()).thenReturn(handler);
+        when(joinPoint.proceed()).thenThrow(new IllegalStateException()).thenReturn("cached");
+
+        Assertions.assertThrows(QueryHandlingException.class, () -> underTest.process(joinPoint));
+        Assertions.assertEquals("cached", underTest.process(joinPoint));
+
+        verify(metrics, times(2)).logCacheMiss(anyString());
+        verify(metrics, never()).logCacheHit(anyString());
+      }
+
+      @CachedQuery(ttl = 1, unit = TimeUnit.MINUTES)
+      class CachingQueryHandler implements QueryHandler<FooQuery, String> {
+        @Override
+        public void verify(@NonNull FooQuery query) throws QueryVerificationException {}
+
+        @Override
+        public @NonNull String handle(@NonNull FooQuery query) {
+          return "cached";
+        }
+      }
+    }
+
+    @Nested
+    class SingleFlightBehaviour {
+      @Test
+      void sharesOutcomeOfExecutionInFlight() throws Throwable {
+        val handler = new BlockingQueryHandler();
+        when(joinPoint.getTarget()).thenReturn(handler);
+        when(joinPoint.proceed()).thenAnswer(invocation -> handler.handle(query));
+
+        val leader = CompletableFuture.supplyAsync(() -> underTest.process(joinPoint));
+        Assertions.assertTrue(handler.entered.await(5, TimeUnit.SECONDS));
+        val follower = CompletableFuture.supplyAsync(() -> underTest.process(joinPoint));
+        verify(metrics, timeout(5000)).logCoalesced(handler.getClass().getName());
+        handler.release.countDown();
+
+        Assertions.assertEquals("shared", leader.get(5, TimeUnit.SECONDS));
+        Assertions.assertEquals("shared", follower.get(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(1, handler.executions.get());
+      }
+
+      @Test
+      void sharesUnexpectedFailureOfLeader() throws Throwable {
+        val handler = new BlockingQueryHandler();
+        when(joinPoint.getTarget()).thenReturn(handler);
+        when(joinPoint.proceed()).thenAnswer(invocation -> handler.handle(query));
+        when(metrics.isPhaseTimingEnabled()).thenReturn(true);
+        val failure = new IllegalStateException("metrics unavailable");
+        lenient()
+            .doThrow(failure)
+            .when(metrics)
+            .logPhase(anyString(), eq(Phase.EXECUTION), anyLong());
+
+        val leader = CompletableFuture.supplyAsync(() -> underTest.process(joinPoint));
+        Assertions.assertTrue(handler.entered.await(5, TimeUnit.SECONDS));
+        val follower = CompletableFuture.supplyAsync(() -> underTest.process(joinPoint));
+        verify(metrics, timeout(5000)).logCoalesced(handler.getClass().getName());
+        handler.release.countDown();
+
+        val e =
+            Assertions.assertThrows(
+                ExecutionException.class, () -> follower.get(5, TimeUnit.SECONDS));
+        Assertions.assertSame(failure, e.getCause());
+        Assertions.assertThrows(ExecutionException.class, () -> leader.get(5, TimeUnit.SECONDS));
+      }
+
+      @Test
+      void followerGivesUpAtItsDeadline() throws Throwable {
+        val handler = new BlockingQueryHandler();
+        when(joinPoint.getTarget()).thenReturn(handler);
+        when(joinPoint.proceed()).thenAnswer(invocation -> handler.handle(query));
+
+        val leader = CompletableFuture.supplyAsync(() -> underTest.process(joinPoint));
+        Assertions.assertTrue(handler.entered.await(5, TimeUnit.SECONDS));
+        try (val scope = DeadlineContext.within(50, TimeUnit.MILLISECONDS)) {
+          Assertions.assertThrows(QueryTimeoutException.class, () -> underTest.process(joinPoint));
+        }
+        verify(metrics).logTimeout(eq(handler.getClass().getName()), anyLong());
+        handler.release.countDown();
+
+        Assertions.assertEquals("shared", leader.get(5, TimeUnit.SECONDS));
+      }
+
+      @Test
+      void executesAgainOnceCompleted() throws Throwable {
+        val handler = new BlockingQueryHandler();
+        handler.release.countDown();
+        when(joinPoint.getTarget()).thenReturn(handler);
+        when(joinPoint.proceed()).thenAnswer(invocation -> handler.handle(query));
+
+        underTest.process(joinPoint);
+        underTest.process(joinPoint);
+
+        Assertions.assertEquals(2, handler.executions.get());
+        verify(metrics, never()).logCoalesced(anyString());
+      }
+
+      @SingleFlight
+      class BlockingQueryHandler implements QueryHandler<FooQuery, String> {
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger executions = new AtomicInteger();
+
+        @Override
+        public void verify(@NonNull FooQuery query) throws QueryVerificationException {}
+
+        @Override
+        public @NonNull String handle(@NonNull FooQuery query) {
+          executions.incrementAndGet();
+          entered.countDown();
+          try {
+            release.await(5, TimeUnit.SECONDS);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+          return "shared";
+        }
+      }
+    }
+
+    @Nested
+    class BatchBehaviour {
+      class IdQuery implements Query {
+        final int id;
+
+        IdQuery(int id) {
+          this.id = id;
+        }
+      }
+
+      private Object process(BatchQueryHandler<IdQuery, String> handler, IdQuery q) {
+        return underTest.process(underTest.describe(handler), handler, q, () -> handler.handle(q));
+      }
+
+      @Test
+      void dispatchesFullBatchAtOnce() throws Throwable {
+        val handler = new WideWindowBatchHandler();
+        val a = new IdQuery(1);
+        val b = new IdQuery(2);
+
+        val first = CompletableFuture.supplyAsync(() -> process(handler, a));
+        val second = CompletableFuture.supplyAsync(() -> process(handler, b));
+
+        Assertions.assertEquals("1", first.get(5, TimeUnit.SECONDS));
+        Assertions.assertEquals("2", second.get(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(1, handler.batches.get());
+        verify(metrics).logBatch(handler.getClass().getName(), 2);
+        verify(metrics, times(2)).logBatchWait(eq(handler.getClass().getName()), anyLong());
+      }
+
+      @Test
+      void dispatchesOnceWindowHasPassed() {
+        val handler = new EchoBatchHandler();
+
+        Assertions.assertEquals("7", process(handler, new IdQuery(7)));
+        verify(metrics).logBatch(handler.getClass().getName(), 1);
+      }
+
+      @Test
+      void givesUpWaitingForBatchAtDeadline() {
+        val handler = new WideWindowBatchHandler();
+
+        try (val scope = DeadlineContext.within(50, TimeUnit.MILLISECONDS)) {
+          Assertions.assertThrows(
+              QueryTimeoutException.class, () -> process(handler, new IdQuery(1)));
+        }
+        verify(metrics).logTimeout(eq(handler.getClass().getName()), anyLong());
+        Assertions.assertEquals(0, handler.batches.get());
+      }
+
+      @Test
+      void failsCallerWithoutResult() {
+        EchoBatchHandler handler =
+            new EchoBatchHandler() {
+              @Override
+              public @NonNull Map<IdQuery, String> handleAll(@NonNull Collection<IdQuery> queries) {
+                return Collections.emptyMap();
+              }
+            };
+
+        Assertions.assertThrows(
+            QueryHandlingException.class, () -> process(handler, new IdQuery(1)));
+      }
+
+      @Test
+      void validatesEveryQuery() {
+        EchoBatchHandler handler =
+            new EchoBatchHandler() {
+              @Override
+              public void verify(@NonNull IdQuery query) throws QueryVerificationException {
+                throw new QueryVerificationException("nope");
+              }
+            };
+
+        Assertions.assertThrows(
+            QueryVerificationException.class, () -> process(handler, new IdQuery(1)));
+        Assertions.assertEquals(0, handler.batches.get());
+      }
+
+      @BatchedQuery(windowMillis = 60_000, maxBatchSize = 2)
+      class WideWindowBatchHandler extends EchoBatchHandler {}
+
+      @BatchedQuery(windowMillis = 20, maxBatchSize = 2)
+      class EchoBatchHandler implements BatchQueryHandler<IdQuery, String> {
+        final AtomicInteger batches = new AtomicInteger();
+
+        @Override
+        public void verify(@NonNull IdQuery query) throws QueryVerificationException {}
+
+        @Override
+        public @NonNull Map<IdQuery, String> handleAll(@NonNull Collection<IdQuery> queries) {
+          batches.incrementAndGet();
+          Map<IdQuery, String> result = new HashMap<>();
+          queries.forEach(q -> result.put(q, String.valueOf(q.id)));
+          return result;
+        }
+      }
+    }
+
+    @Nested
+    class BulkheadBehaviour {
+      @Test
+      void rejectsBeyondLimit() throws Throwable {
+        val handler = new LimitedQueryHandler();
+        when(joinPoint.getTarget()).thenReturn(handler);
+        when(joinPoint.proceed()).thenAnswer(invocation -> handler.handle(query));
+
+        val running = CompletableFuture.supplyAsync(() -> underTest.process(joinPoint));
+        Assertions.assertTrue(handler.entered.await(5, TimeUnit.SECONDS));
+
+        Assertions.assertThrows(QueryRejectedException.class, () -> underTest.process(joinPoint));
+        verify(metrics).logRejected(handler.getClass().getName());
+
+        handler.release.countDown();
+        Assertions.assertEquals("limited", running.get(5, TimeUnit.SECONDS));
+        Assertions.assertEquals("limited", underTest.process(joinPoint));
+      }
+
+      @Bulkhead(maxConcurrent = 1, maxWaitMillis = 10)
+      class LimitedQueryHandler implements QueryHandler<FooQuery, String> {
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        @Override
+        public void verify(@NonNull FooQuery query) throws QueryVerificationException {}
+
+        @Override
+        public @NonNull String handle(@NonNull FooQuery query) {
+          entered.countDown();
+          try {
+            release.await(5, TimeUnit.SECONDS);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+          return "limited";
+        }
+      }
+    }
+
+    @Nested
+    class SloBehaviour {
+      @Test
+      void registersSloOnce() {
+        val handler = new SloQueryHandler();
+        underTest.describe(handler);
+        underTest.describe(handler);
+
+        verify(metrics)
+            .registerSlo(
+                handler.getClass().getName(),
+                SloQueryHandler.class.getAnnotation(HandlerSlo.class));
+      }
+
+      @HandlerSlo(p99Millis = 100)
+      class SloQueryHandler implements QueryHandler<FooQuery, String> {
+        @Override
+        public void verify(@NonNull FooQuery query) throws QueryVerificationException {}
+
+        @Override
+        public @NonNull String handle(@NonNull FooQuery query) {
+          return "slo";
+        }
+      }
+    }
+
+    @Nested
+    class HedgingBehaviour {
+      @Test
+      void hedgesSlowInvocation() throws Throwable {
+        val handler = new TailingQueryHandler();
+        when(joinPoint.getTarget()).thenReturn(handler);
+        when(joinPoint.proceed()).thenAnswer(invocation -> handler.handle(query));
+        calibrate(handler);
+
+        handler.slowNext.set(true);
+        Assertions.assertEquals("fast", underTest.process(joinPoint));
+
+        verify(metrics, atLeastOnce()).logHedge(handler.getClass().getName());
+        verify(metrics, atLeastOnce()).logHedgeWon(handler.getClass().getName());
+        Assertions.assertTrue(handler.interrupted.await(5, TimeUnit.SECONDS));
+      }
+
+      @Test
+      void calibratesDelayFromObservedLatencies() {
+        val hedging = new QueryHedging(50, 1);
+        for (int i = 1; i <= 19; i++) {
+          hedging.record(i);
+        }
+        Assertions.assertEquals(-1, hedging.getDelayNanos());
+
+        hedging.record(20);
+        Assertions.assertEquals(10, hedging.getDelayNanos());
+      }
+
+      @Test
+      void keepsOnlyRecentLatencies() {
+        val hedging = new QueryHedging(50, 1);
+        for (int i = 0; i < 1000; i++) {
+          hedging.record(1000);
+        }
+        for (int i = 0; i < 256; i++) {
+          hedging.record(1);
+        }
+        Assertions.assertEquals(1, hedging.getDelayNanos());
+      }
+
+      @Test
+      void succeedsIfAnotherHedgeIsStillRunning() throws Throwable {
+        val handler = new FailingPrimaryQueryHandler();
+        when(joinPoint.getTarget()).thenReturn(handler);
+        when(joinPoint.proceed()).thenAnswer(invocation -> handler.handle(query));
+        calibrate(handler);
+
+        handler.failNext.set(true);
+        Assertions.assertEquals("hedge", underTest.process(joinPoint));
+        // either invocation may be the first to fail, depending on which one starts first
+        verify(metrics).logHedge(handler.getClass().getName());
+      }
+
+      /**
+       * records latencies instead of invoking the handler, as hedges started by such invocations
+       * could still be running when the test continues
+       */
+      private void calibrate(Object handler) {
+        val hedging = underTest.describe(handler).getHedging().get();
+        for (int i = 0; i < 25; i++) {
+          hedging.record(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+      }
+
+      @HedgedQuery(afterPercentile = 50)
+      class FailingPrimaryQueryHandler implements QueryHandler<FooQuery, String> {
+        final AtomicBoolean failNext = new AtomicBoolean();
+        final CountDownLatch hedgeStarted = new CountDownLatch(1);
+        final CountDownLatch primaryFailed = new CountDownLatch(1);
+        final AtomicBoolean primary = new AtomicBoolean();
+
+        @Override
+        public void verify(@NonNull FooQuery query) throws QueryVerificationException {}
+
+        @Override
+        public @NonNull String handle(@NonNull FooQuery query) {
+          if (failNext.getAndSet(false)) {
+            primary.set(true);
+            awaitLatch(hedgeStarted);
+            primaryFailed.countDown();
+            throw new IllegalStateException("primary failed");
+          }
+          if (primary.get()) {
+            hedgeStarted.countDown();
+            awaitLatch(primaryFailed);
+            return "hedge";
+          }
+          return "fast";
+        }
+
+        private void awaitLatch(CountDownLatch latch) {
+          try {
+            latch.await(5, TimeUnit.SECONDS);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        }
+      }
+
+      @HedgedQuery(afterPercentile = 50)
+      class TailingQueryHandler implements QueryHandler<FooQuery, String> {
+        final AtomicBoolean slowNext = new AtomicBoolean();
+        final CountDownLatch interrupted = new CountDownLatch(1);
+
+        @Override
+        public void verify(@NonNull FooQuery query) throws QueryVerificationException {}
+
+        @Override
+        public @NonNull String handle(@NonNull FooQuery query) {
+          if (slowNext.getAndSet(false)) {
+            try {
+              Thread.sleep(10_000);
+            } catch (InterruptedException e) {
+              interrupted.countDown();
+            }
+            return "slow";
+          }
+          return "fast";
+        }
+      }
+    }
+
+    @Nested
+    class DeadlineBehaviour {
+      @Test
+      void failsFastOnceDeadlineHasPassed() throws Throwable {
+        when(metrics.timedQuery(any(), anyInt(), any()))
+            .thenAnswer(invocation -> ((Supplier<?>) invocation.getArgument(2)).get());
+
+        try (val scope = DeadlineContext.within(0, TimeUnit.MILLISECONDS)) {
+          Assertions.assertThrows(
+              QueryTimeoutException.class, () -> underTest.orchestrate(handler, query));
+        }
+
+        verify(handler, never()).validate(query);
+        verify(handler, never()).handle(query);
+        verify(metrics).logTimeout(eq(handler.getClass().getName()), anyLong());
+      }
+
+      @Test
+      void establishesDeadlineForNestedInvocations() throws Throwable {
+        val handler = new BudgetedQueryHandler();
+        when(metrics.timedQuery(any(), anyInt(), any()))
+            .thenAnswer(invocation -> ((Supplier<?>) invocation.getArgument(2)).get());
+
+        Assertions.assertEquals("budgeted", underTest.orchestrate(handler, query));
+
+        Assertions.assertTrue(handler.remainingNanos > 0);
+        Assertions.assertTrue(handler.remainingNanos <= TimeUnit.SECONDS.toNanos(1));
+        Assertions.assertFalse(DeadlineContext.isPresent());
+      }
+
+      @Test
+      void doesNotRetryOnceDeadlineExpired() throws Throwable {
+        val handler = new SlowFailingQueryHandler();
+        when(metrics.timedQuery(any(), anyInt(), any()))
+            .thenAnswer(invocation -> ((Supplier<?>) invocation.getArgument(2)).get());
+
+        Assertions.assertThrows(
+            QueryHandlingException.class, () -> underTest.orchestrate(handler, query));
+
+        Assertions.assertEquals(1, handler.attempts.get());
+        verify(metrics, times(1)).timedQuery(any(), anyInt(), any());
+      }
+
+      @Deadline(millis = 20)
+      @RetryConfiguration(maxAttempts = 5, interval = 1)
+      class SlowFailingQueryHandler implements QueryHandler<FooQuery, String> {
+        final AtomicInteger attempts = new AtomicInteger();
+
+        @Override
+        public void verify(@NonNull FooQuery query) throws QueryVerificationException {}
+
+        @Override
+        public @NonNull String handle(@NonNull FooQuery query) {
+          attempts.incrementAndGet();
+          try {
+            Thread.sleep(40);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+          throw new IllegalStateException("too late");
+        }
+      }
+
+      @Deadline(millis = 1000)
+      class BudgetedQueryHandler implements QueryHandler<FooQuery, String> {
+        long remainingNanos;
+
+        @Override
+        public void verify(@NonNull FooQuery query) throws QueryVerificationException {}
+
+        @Override
+        public @NonNull String handle(@NonNull FooQuery query) {
+          remainingNanos = DeadlineContext.remainingNanos();
+          return "budgeted";
+        }
+      }
     }
 
     @Nested
@@ -293,11 +883,11 @@ class QueryHandlerOrchestrationAspectTest {
                   return fn.get();
                 });
 
-        doThrow(new IllegalStateException("foo")).when(uut).process(joinPoint);
+        doThrow(new IllegalStateException("foo")).when(uut).process(any(), any(), any(), any());
 
         Assertions.assertThrows(RuntimeException.class, () -> uut.orchestrate(joinPoint));
 
-        verify(uut, times(4)).process(joinPoint);
+        verify(uut, times(4)).process(any(), any(), any(), any());
         verify(metrics, times(4)).timedQuery(any(), anyInt(), any());
       }
 
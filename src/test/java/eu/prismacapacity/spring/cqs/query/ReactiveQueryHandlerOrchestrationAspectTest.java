@@ -0,0 +1,239 @@
+/*
+ * Copyright © 2026 PRISMA European Capacity Platform GmbH 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.prismacapacity.spring.cqs.query;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import eu.prismacapacity.spring.cqs.metrics.Outcome;
+import eu.prismacapacity.spring.cqs.metrics.QueryMetrics;
+import eu.prismacapacity.spring.cqs.retry.RetryConfiguration;
+import jakarta.validation.Validator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import lombok.NonNull;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.extension.*;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@ExtendWith(MockitoExtension.class)
+class ReactiveQueryHandlerOrchestrationAspectTest {
+
+  @Mock private Validator validator;
+  @Mock private QueryMetrics metrics;
+  @InjectMocks private ReactiveQueryHandlerOrchestrationAspect underTest;
+
+  static class FooQuery implements Query {}
+
+  private final FooQuery query = new FooQuery();
+  private final AtomicInteger calls = new AtomicInteger();
+
+  class MonoHandler implements ReactiveQueryHandler<FooQuery, String> {
+    @Override
+    public void verify(@NonNull FooQuery query) throws QueryVerificationException {}
+
+    @Override
+    public Mono<String> handle(@NonNull FooQuery query) {
+      calls.incrementAndGet();
+      return Mono.just("yep");
+    }
+  }
+
+  class FluxHandler implements ReactiveQueryHandler<FooQuery, String> {
+    @Override
+    public void verify(@NonNull FooQuery query) throws QueryVerificationException {}
+
+    @Override
+    public Flux<String> handle(@NonNull FooQuery query) {
+      return Flux.just("a", "b");
+    }
+  }
+
+  class EmptyHandler extends MonoHandler {
+    @Override
+    public Mono<String> handle(@NonNull FooQuery query) {
+      return Mono.empty();
+    }
+  }
+
+  @RetryConfiguration(maxAttempts = 2, interval = 1)
+  class FlakyHandler extends MonoHandler {
+    @Override
+    public Mono<String> handle(@NonNull FooQuery query) {
+      return calls.incrementAndGet() < 3
+          ? Mono.error(new IllegalStateException("flaky"))
+          : Mono.just("finally");
+    }
+  }
+
+  @QueryTimeout(millis = 20)
+  class SlowHandler extends MonoHandler {
+    @Override
+    public Mono<String> handle(@NonNull FooQuery query) {
+      return Mono.never();
+    }
+  }
+
+  @RetryConfiguration(maxAttempts = 2, interval = 1)
+  class PendingHandler extends MonoHandler {
+    @Override
+    public Mono<String> handle(@NonNull FooQuery query) {
+      calls.incrementAndGet();
+      return Mono.never();
+    }
+  }
+
+  @SingleFlight
+  class CoalescingHandler extends MonoHandler {}
+
+  @RetryConfiguration(budgetRatio = 0.1)
+  class BudgetedHandler extends MonoHandler {}
+
+  private Object orchestrate(ReactiveQueryHandler<FooQuery, ?> handler) {
+    return underTest.orchestrate(
+        underTest.describe(handler), handler, query, () -> handler.handle(query));
+  }
+
+  @Test
+  void keepsMonoAndTimesOnSubscription() {
+    Object result = orchestrate(new MonoHandler());
+
+    assertThat(result).isInstanceOf(Mono.class);
+    assertThat(calls).hasValue(0);
+    assertThat(((Mono<?>) result).block()).isEqualTo("yep");
+    assertThat(calls).hasValue(1);
+    verify(metrics).timedQueryAsync(eq(MonoHandler.class.getName()), eq(0), any());
+  }
+
+  @Test
+  void keepsFlux() {
+    Object result = orchestrate(new FluxHandler());
+
+    assertThat(result).isInstanceOf(Flux.class);
+    assertThat(((Flux<?>) result).collectList().block()).isEqualTo(Arrays.asList("a", "b"));
+  }
+
+  @Test
+  void validatesEagerly() {
+    MonoHandler handler =
+        new MonoHandler() {
+          @Override
+          public void validate(@NonNull FooQuery query) throws QueryValidationException {
+            throw new QueryValidationException(new IllegalArgumentException("invalid"));
+          }
+        };
+
+    assertThatThrownBy(() -> orchestrate(handler)).isInstanceOf(QueryValidationException.class);
+    assertThat(calls).hasValue(0);
+  }
+
+  @Test
+  void verifiesEagerly() {
+    MonoHandler handler =
+        new MonoHandler() {
+          @Override
+          public void verify(@NonNull FooQuery query) throws QueryVerificationException {
+            throw new IllegalStateException("nope");
+          }
+        };
+
+    assertThatThrownBy(() -> orchestrate(handler)).isInstanceOf(QueryVerificationException.class);
+  }
+
+  @Test
+  void failsOnEmptyMono() {
+    Mono<?> result = (Mono<?>) orchestrate(new EmptyHandler());
+
+    assertThatThrownBy(result::block)
+        .isInstanceOf(QueryHandlingException.class)
+        .hasMessage("Returned object must not be null");
+  }
+
+  @Test
+  void wrapsErrors() {
+    MonoHandler handler =
+        new MonoHandler() {
+          @Override
+          public Mono<String> handle(@NonNull FooQuery query) {
+            return Mono.error(new IllegalArgumentException("boom"));
+          }
+        };
+
+    assertThatThrownBy(((Mono<?>) orchestrate(handler))::block)
+        .isInstanceOf(QueryHandlingException.class)
+        .hasCauseInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  void retriesByInvokingHandleAgain() {
+    Mono<?> result = (Mono<?>) orchestrate(new FlakyHandler());
+
+    assertThat(result.block()).isEqualTo("finally");
+    assertThat(calls).hasValue(3);
+    verify(metrics).timedQueryAsync(eq(FlakyHandler.class.getName()), eq(0), any());
+    verify(metrics).timedQueryAsync(eq(FlakyHandler.class.getName()), eq(2), any());
+  }
+
+  @Test
+  void countsCancellationAsCancelledWithoutRetry() {
+    List<CompletableFuture<?>> attempts = new ArrayList<>();
+    when(metrics.timedQueryAsync(any(), anyInt(), any()))
+        .thenAnswer(
+            invocation -> {
+              CompletableFuture<?> attempt =
+                  ((Supplier<CompletableFuture<?>>) invocation.getArgument(2)).get();
+              attempts.add(attempt);
+              return attempt;
+            });
+    Mono<?> result = (Mono<?>) orchestrate(new PendingHandler());
+
+    result.subscribe().dispose();
+
+    assertThat(calls).hasValue(1);
+    assertThat(attempts).hasSize(1);
+    assertThat(attempts.get(0)).isCancelled();
+    assertThatThrownBy(attempts.get(0)::join)
+        .satisfies(e -> assertThat(Outcome.of(e)).isEqualTo(Outcome.CANCELLED));
+  }
+
+  @Test
+  void mapsTimeouts() {
+    Mono<?> result = (Mono<?>) orchestrate(new SlowHandler());
+
+    assertThatThrownBy(result::block).isInstanceOf(QueryTimeoutException.class);
+    verify(metrics).logTimeout(eq(SlowHandler.class.getName()), anyLong());
+  }
+
+  @Test
+  void failsFastOnUnsupportedConfiguration() {
+    assertThatThrownBy(() -> underTest.describe(new CoalescingHandler()))
+        .isInstanceOf(IllegalStateException.class)
+        .hasMessageContaining("@SingleFlight");
+    assertThatThrownBy(() -> underTest.describe(new BudgetedHandler()))
+        .isInstanceOf(IllegalStateException.class)
+        .hasMessageContaining("retry budget");
+    verifyNoInteractions(metrics);
+  }
+}
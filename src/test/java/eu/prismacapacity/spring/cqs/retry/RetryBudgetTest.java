@@ -0,0 +1,65 @@
+/*
+ * Copyright © 2022-2026 PRISMA European Capacity Platform GmbH 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.prismacapacity.spring.cqs.retry;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class RetryBudgetTest {
+
+  @Test
+  void startsFull() {
+    RetryBudget budget = new RetryBudget(0.1, 3);
+
+    assertTrue(budget.tryWithdraw());
+    assertTrue(budget.tryWithdraw());
+    assertTrue(budget.tryWithdraw());
+    assertFalse(budget.tryWithdraw());
+    assertEquals(1, budget.getExhausted());
+  }
+
+  @Test
+  void refillsWithRatioOfInvocations() {
+    RetryBudget budget = new RetryBudget(0.25, 1);
+    assertTrue(budget.tryWithdraw());
+
+    for (int i = 0; i < 3; i++) {
+      budget.deposit();
+      assertFalse(budget.tryWithdraw());
+    }
+    budget.deposit();
+
+    assertTrue(budget.tryWithdraw());
+    assertEquals(3, budget.getExhausted());
+  }
+
+  @Test
+  void isCappedAtCapacity() {
+    RetryBudget budget = new RetryBudget(1, 2);
+    for (int i = 0; i < 10; i++) {
+      budget.deposit();
+    }
+
+    assertEquals(2, budget.getBalance());
+  }
+
+  @Test
+  void rejectsInvalidConfiguration() {
+    assertThrows(IllegalArgumentException.class, () -> new RetryBudget(0, 10));
+    assertThrows(IllegalArgumentException.class, () -> new RetryBudget(0.1, 0));
+  }
+}
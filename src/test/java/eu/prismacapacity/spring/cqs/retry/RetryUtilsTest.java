@@ -19,14 +19,27 @@ import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
 import eu.prismacapacity.spring.cqs.cmd.CommandHandlingException;
+import eu.prismacapacity.spring.cqs.cmd.CommandRejectedException;
 import eu.prismacapacity.spring.cqs.cmd.CommandValidationException;
+import eu.prismacapacity.spring.cqs.deadline.DeadlineContext;
 import eu.prismacapacity.spring.cqs.query.QueryHandlingException;
+import eu.prismacapacity.spring.cqs.query.QueryRejectedException;
 import eu.prismacapacity.spring.cqs.query.QueryValidationException;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.retry.RetryTemplate;
 
 @ExtendWith(MockitoExtension.class)
 class RetryUtilsTest {
@@ -108,6 +121,272 @@ class RetryUtilsTest {
     verify(fn, times(6)).apply(any());
   }
 
+  @Test
+  void test_doesNotRetryRejections() {
+    when(fn.apply(any()))
+        .thenThrow(new QueryRejectedException("full"))
+        .thenThrow(new CommandRejectedException("full"));
+
+    assertThrows(
+        QueryRejectedException.class,
+        () -> RetryUtils.withOptionalRetry(RetryWithDefaults.class, fn));
+    assertThrows(
+        CommandRejectedException.class,
+        () -> RetryUtils.withOptionalRetry(RetryWithDefaults.class, fn));
+
+    verify(fn, times(2)).apply(0);
+    verify(fn, never()).apply(1);
+  }
+
+  @Test
+  void test_stopsOnceDeadlineExpired() {
+    AtomicInteger attempts = new AtomicInteger();
+
+    try (DeadlineContext.Scope scope = DeadlineContext.within(20, TimeUnit.MILLISECONDS)) {
+      assertThrows(
+          IllegalStateException.class,
+          () ->
+              RetryUtils.withOptionalRetry(
+                  RetryWithDefaults.class,
+                  count -> {
+                    attempts.incrementAndGet();
+                    sleep(40);
+                    throw new IllegalStateException();
+                  }));
+    }
+
+    assertEquals(1, attempts.get());
+  }
+
+  @Test
+  void test_observer_deadlineExpiredCountsAsExhausted() {
+    RetryObserver observer = mock(RetryObserver.class);
+
+    try (DeadlineContext.Scope scope = DeadlineContext.within(20, TimeUnit.MILLISECONDS)) {
+      assertThrows(
+          IllegalStateException.class,
+          () ->
+              RetryUtils.withOptionalRetry(
+                  RetryUtils.retryTemplateFor(RetryWithDefaults.class),
+                  observer,
+                  count -> {
+                    sleep(40);
+                    throw new IllegalStateException();
+                  }));
+    }
+
+    verify(observer).onCompleted(eq(1), eq(0L), eq(RetryObserver.Outcome.EXHAUSTED));
+  }
+
+  @Test
+  void test_capsBackoffAtDeadline() {
+    AtomicInteger attempts = new AtomicInteger();
+    long start = System.nanoTime();
+
+    try (DeadlineContext.Scope scope = DeadlineContext.within(50, TimeUnit.MILLISECONDS)) {
+      assertThrows(
+          IllegalStateException.class,
+          () ->
+              RetryUtils.withOptionalRetry(
+                  RetryWithLongInterval.class,
+                  count -> {
+                    attempts.incrementAndGet();
+                    throw new IllegalStateException();
+                  }));
+    }
+
+    assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+    assertEquals(2, attempts.get());
+  }
+
+  @Test
+  void test_async_withoutRetry() {
+    CompletableFuture<String> failed = new CompletableFuture<>();
+    failed.completeExceptionally(new IllegalStateException());
+
+    CompletableFuture<String> actual =
+        RetryUtils.withOptionalRetryAsync(
+            RetryUtils.retryTemplateFor(NoRetries.class), c -> failed);
+
+    assertSame(failed, actual);
+  }
+
+  @Test
+  void test_async_retriesUntilSuccess() {
+    AtomicInteger attempts = new AtomicInteger();
+    Set<Thread> threads = ConcurrentHashMap.newKeySet();
+
+    CompletableFuture<Integer> actual =
+        RetryUtils.withOptionalRetryAsync(
+            RetryUtils.retryTemplateFor(RetryWithDefaults.class),
+            count -> {
+              attempts.incrementAndGet();
+              threads.add(Thread.currentThread());
+              CompletableFuture<Integer> f = new CompletableFuture<>();
+              if (count < 2) {
+                f.completeExceptionally(new CompletionException(new IllegalStateException()));
+              } else {
+                f.complete(count);
+              }
+              return f;
+            });
+
+    assertEquals(2, actual.join());
+    assertEquals(3, attempts.get());
+    // later attempts are scheduled instead of sleeping on the calling thread
+    assertTrue(threads.size() > 1);
+  }
+
+  @Test
+  void test_async_exhausted() {
+    AtomicInteger attempts = new AtomicInteger();
+
+    CompletableFuture<String> actual =
+        RetryUtils.withOptionalRetryAsync(
+            RetryUtils.retryTemplateFor(RetryWithDefaults.class),
+            count -> {
+              attempts.incrementAndGet();
+              throw new IllegalStateException("attempt " + count);
+            });
+
+    ExecutionException e = assertThrows(ExecutionException.class, actual::get);
+    assertInstanceOf(IllegalStateException.class, e.getCause());
+    assertEquals("attempt 3", e.getCause().getMessage());
+    assertEquals(4, attempts.get());
+  }
+
+  @Test
+  void test_async_noRetry() {
+    AtomicInteger attempts = new AtomicInteger();
+
+    CompletableFuture<String> actual =
+        RetryUtils.withOptionalRetryAsync(
+            RetryUtils.retryTemplateFor(RetryWithCustomConfig.class),
+            count -> {
+              attempts.incrementAndGet();
+              CompletableFuture<String> f = new CompletableFuture<>();
+              f.completeExceptionally(new IllegalStateException());
+              return f;
+            });
+
+    assertThrows(ExecutionException.class, actual::get);
+    assertEquals(1, attempts.get());
+  }
+
+  @Test
+  void test_budget() {
+    when(fn.apply(any())).thenThrow(new IllegalStateException());
+
+    Optional<RetryTemplate> template = RetryUtils.retryTemplateFor(RetryWithBudget.class);
+
+    // the budget allows two retries, the second invocation deposits 0.5 tokens
+    assertThrows(IllegalStateException.class, () -> RetryUtils.withOptionalRetry(template, fn));
+    assertThrows(IllegalStateException.class, () -> RetryUtils.withOptionalRetry(template, fn));
+
+    verify(fn, times(4)).apply(any());
+    assertEquals(2, RetryUtils.retryBudgetOf(template).get().getExhausted());
+  }
+
+  @Test
+  void test_templatesDoNotShareBudgets() {
+    when(fn.apply(any())).thenThrow(new IllegalStateException());
+    Optional<RetryTemplate> exhausted = RetryUtils.retryTemplateFor(RetryWithBudget.class);
+    assertThrows(IllegalStateException.class, () -> RetryUtils.withOptionalRetry(exhausted, fn));
+    assertThrows(IllegalStateException.class, () -> RetryUtils.withOptionalRetry(exhausted, fn));
+
+    clearInvocations(fn);
+
+    // e.g. the descriptor of another application context still has both retries
+    Optional<RetryTemplate> other = RetryUtils.retryTemplateFor(RetryWithBudget.class);
+    assertThrows(IllegalStateException.class, () -> RetryUtils.withOptionalRetry(other, fn));
+
+    verify(fn, times(3)).apply(any());
+  }
+
+  @Test
+  void test_globalBudget() {
+    when(fn.apply(any())).thenThrow(new IllegalStateException());
+    RetryBudget global = new RetryBudget(0.1, 1);
+    assertThrows(
+        IllegalStateException.class,
+        () ->
+            RetryUtils.withOptionalRetry(
+                RetryUtils.retryTemplateFor(RetryWithDefaults.class, global), fn));
+
+    verify(fn, times(2)).apply(any());
+    assertEquals(1, global.getExhausted());
+  }
+
+  @Test
+  void test_globalBudgetDoesNotApplyToOtherTemplates() {
+    when(fn.apply(any())).thenThrow(new IllegalStateException());
+    RetryBudget global = new RetryBudget(0.1, 1);
+    RetryUtils.retryTemplateFor(RetryWithDefaults.class, global);
+
+    assertThrows(
+        IllegalStateException.class,
+        () -> RetryUtils.withOptionalRetry(RetryWithDefaults.class, fn));
+
+    verify(fn, times(4)).apply(any());
+    assertEquals(0, global.getExhausted());
+  }
+
+  @Test
+  void test_jitter() {
+    when(fn.apply(any())).thenThrow(new IllegalStateException());
+
+    assertThrows(
+        IllegalStateException.class, () -> RetryUtils.withOptionalRetry(RetryWithJitter.class, fn));
+
+    verify(fn, times(3)).apply(any());
+  }
+
+  @Test
+  void test_observer() {
+    when(fn.apply(any())).thenThrow(new IllegalStateException()).thenReturn("foo");
+    RetryObserver observer = mock(RetryObserver.class);
+
+    RetryUtils.withOptionalRetry(
+        RetryUtils.retryTemplateFor(RetryWithDefaults.class), observer, fn);
+
+    ArgumentCaptor<Long> backOff = ArgumentCaptor.forClass(Long.class);
+    verify(observer).onCompleted(eq(2), backOff.capture(), eq(RetryObserver.Outcome.SUCCEEDED));
+    assertTrue(backOff.getValue() >= TimeUnit.MILLISECONDS.toNanos(20));
+  }
+
+  @Test
+  void test_observer_failures() {
+    when(fn.apply(any())).thenThrow(new IllegalStateException());
+    when(fn2.apply(any())).thenThrow(new IllegalArgumentException());
+    RetryObserver observer = mock(RetryObserver.class);
+    Optional<RetryTemplate> template = RetryUtils.retryTemplateFor(RetryWithCustomConfig.class);
+
+    assertThrows(
+        IllegalStateException.class, () -> RetryUtils.withOptionalRetry(template, observer, fn));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> RetryUtils.withOptionalRetry(template, observer, fn2));
+
+    verify(observer).onCompleted(eq(1), eq(0L), eq(RetryObserver.Outcome.NOT_RETRYABLE));
+    verify(observer).onCompleted(eq(3), anyLong(), eq(RetryObserver.Outcome.EXHAUSTED));
+  }
+
+  @Test
+  void test_async_observer() {
+    RetryObserver observer = mock(RetryObserver.class);
+
+    CompletableFuture<String> actual =
+        RetryUtils.withOptionalRetryAsync(
+            RetryUtils.retryTemplateFor(RetryWithCustomConfig.class),
+            observer,
+            count -> {
+              throw new IllegalArgumentException();
+            });
+
+    assertThrows(ExecutionException.class, actual::get);
+    verify(observer).onCompleted(eq(3), anyLong(), eq(RetryObserver.Outcome.EXHAUSTED));
+  }
+
   static class NoRetries {}
 
   @RetryConfiguration
@@ -120,4 +399,21 @@ class RetryUtilsTest {
 
   @RetryConfiguration(maxAttempts = 5, exponentialBackoffMaxInterval = 25)
   static class RetryWithBackoff {}
+
+  @RetryConfiguration(budgetRatio = 0.5, budgetCapacity = 2)
+  static class RetryWithBudget {}
+
+  private static void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  @RetryConfiguration(maxAttempts = 5, interval = 60_000)
+  static class RetryWithLongInterval {}
+
+  @RetryConfiguration(maxAttempts = 2, interval = 10, jitter = 5)
+  static class RetryWithJitter {}
 }